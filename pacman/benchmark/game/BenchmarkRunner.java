@@ -0,0 +1,158 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+
+
+/**
+ * BenchmarkRunner class, a small harness measuring the average time and allocation of an operation, in the
+ * manner of JMH's average time mode with its GC profiler. Each benchmark is warmed up for a number of
+ * iterations, then measured for as many again; every iteration calls the operation in batches until a
+ * fixed time has passed, and the time and bytes allocated per call are averaged over the measured ones.
+ * <p>
+ * Results of operations must be handed to <code> consume </code>, so the JIT compiler cannot drop the
+ * work producing them, as JMH's black hole ensures.
+ * @see CoreBenchmarks
+ */
+public class BenchmarkRunner {
+    // iterations and their length, in nanoseconds
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+    // time between two readings of the clock, in nanoseconds, and the most calls made in between
+    private static final long BATCH_NANOS = 10_000L;
+    private static final long MAX_BATCH = 100_000L;
+
+    // allocation counter of the current thread, if the virtual machine offers one
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads &&
+             threads.isThreadAllocatedMemorySupported()) ? threads : null;
+
+    // sink of every result consumed, which is never read
+    private static volatile int sink;
+
+    // results so far
+    private final ArrayList<Result> results = new ArrayList<>();
+
+    /**
+     * An operation to benchmark.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * Run the operation once.
+         * @throws Exception if the operation fails, which aborts the benchmark
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * The result of a benchmark.
+     * @param name        the benchmark's name
+     * @param parameter   the benchmark's parameter, such as the level it ran on
+     * @param nanosPerOp  the average time per operation, in nanoseconds
+     * @param errorNanos  the standard deviation of the time per operation over the iterations
+     * @param bytesPerOp  the average bytes allocated per operation, or -1 if unknown
+     */
+    public record Result(String name, String parameter, double nanosPerOp, double errorNanos, double bytesPerOp) {}
+
+
+    /**
+     * Consume a result, so that the work producing it is not optimized away.
+     * @param result the result
+     */
+    public static void consume(Object result) {
+        sink ^= System.identityHashCode(result);
+    }
+
+    /**
+     * Consume a result, so that the work producing it is not optimized away.
+     * @param result the result
+     */
+    public static void consume(long result) {
+        sink ^= (int) (result ^ (result >>> 32));
+    }
+
+
+    /**
+     * Run a benchmark and record its result.
+     * @param name      the benchmark's name
+     * @param parameter the benchmark's parameter
+     * @param operation the operation
+     * @return          the result
+     * @throws Exception if the operation fails
+     */
+    public Result run(String name, String parameter, Operation operation) throws Exception {
+        // warm up, finding a batch size which makes the clock's resolution negligible
+        int batch = 1;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            long[] iteration = iterate(operation, batch);
+            long nanosPerCall = Math.max(1, iteration[0] / iteration[2]);
+            batch = (int) Math.max(1, Math.min(MAX_BATCH, BATCH_NANOS / nanosPerCall));
+        }
+
+        // measure
+        double[] nanos = new double[MEASURED_ITERATIONS];
+        double bytes = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long[] iteration = iterate(operation, batch);
+            nanos[i] = (double) iteration[0] / iteration[2];
+            bytes += (iteration[1] < 0) ? Double.NaN : (double) iteration[1] / iteration[2];
+        }
+        double mean = 0;
+        for (double value : nanos)
+            mean += value / MEASURED_ITERATIONS;
+        double variance = 0;
+        for (double value : nanos)
+            variance += (value - mean) * (value - mean) / Math.max(1, MEASURED_ITERATIONS - 1);
+        Result result = new Result(name, parameter, mean, Math.sqrt(variance),
+                                   Double.isNaN(bytes) ? -1 : bytes / MEASURED_ITERATIONS);
+        results.add(result);
+        System.out.println(format(result));
+        return result;
+    }
+
+    /**
+     * Run an iteration of a benchmark.
+     * @param operation the operation
+     * @param batch     the number of calls between two readings of the clock
+     * @return          the nanoseconds taken, the bytes allocated or -1 if unknown, and the number of calls
+     * @throws Exception if the operation fails
+     */
+    private static long[] iterate(Operation operation, int batch) throws Exception {
+        long thread = Thread.currentThread().getId();
+        long startBytes = (THREADS == null) ? 0 : THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long elapsed, calls = 0;
+        do {
+            for (int i = 0; i < batch; i++)
+                operation.run();
+            calls += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        long bytes = (THREADS == null) ? -1 : THREADS.getThreadAllocatedBytes(thread) - startBytes;
+        return new long[]{elapsed, bytes, calls};
+    }
+
+
+    /**
+     * Format a result as a line of the report.
+     * @param result the result
+     * @return       the line
+     */
+    public static String format(Result result) {
+        return String.format(Locale.ROOT, "%-32s %-28s %14.1f +- %10.1f ns/op %14.1f B/op",
+                result.name(), result.parameter(), result.nanosPerOp(), result.errorNanos(),
+                result.bytesPerOp());
+    }
+
+    /**
+     * Get every result recorded so far.
+     * @return a copy of the results
+     */
+    public ArrayList<Result> getResults() {
+        return new ArrayList<>(results);
+    }
+}
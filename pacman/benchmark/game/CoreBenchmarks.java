@@ -0,0 +1,149 @@
+package game;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import ch.aplu.jgamegrid.Location;
+import java.io.File;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+
+/**
+ * CoreBenchmarks class, the benchmark suite of the game's core data structures and algorithms: location
+ * hashing and lookups, live actors' moves, the path finder's searches, the object manager's item queries,
+ * level parsing and checking, and the game callback's logging. Every benchmark runs on each level of
+ * <code> test/ </code> as well as on large levels of the level generator, and reports the time and bytes allocated per
+ * operation.
+ * <p>
+ * The suite is kept apart from the game's sources, and is compiled and run from the <code> pacman </code>
+ * directory against them:
+ * <pre>
+ *     javac -encoding UTF-8 -d out -cp "lib/*" $(find src benchmark -name '*.java')
+ *     java -Djava.awt.headless=true -cp "out:lib/*" game.CoreBenchmarks [level.xml ...]
+ * </pre>
+ * Levels given as arguments replace the default ones.
+ * @see BenchmarkRunner
+ */
+public class CoreBenchmarks {
+    // default levels and properties
+    private static final String LEVELS_DIRECTORY = "test";
+    private static final String PROPERTIES_FILE = PropertiesLoader.PROPERTIES_PATH + "test.properties";
+
+    // sizes and seed of the generated mazes
+    private static final int[] MAZE_SIZES = {64, 256};
+    private static final long MAZE_SEED = 30006;
+
+    // a log record of the usual length
+    private static final String LOG_RECORD = "[PacMan] Location: 12-7. Score: 97. Pills: 42";
+
+    private final BenchmarkRunner runner = new BenchmarkRunner();
+    private final Properties properties;
+
+    /**
+     * Core benchmarks constructor.
+     * @param properties the game's properties
+     */
+    private CoreBenchmarks(Properties properties) {
+        this.properties = properties;
+    }
+
+
+    /**
+     * Run the suite.
+     * @param args the levels to run on, or none for the default ones
+     */
+    public static void main(String[] args) throws Exception {
+        Properties properties = PropertiesLoader.loadPropertiesFile(PROPERTIES_FILE);
+        ArrayList<String> levels = new ArrayList<>(Arrays.asList(args));
+        if (levels.isEmpty()) {
+            File[] files = new File(LEVELS_DIRECTORY).listFiles((directory, name) -> name.endsWith(".xml"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files)
+                    levels.add(file.getPath());
+            }
+            Path directory = Files.createTempDirectory("mazes");
+            for (int size : MAZE_SIZES)
+                levels.add(LevelGenerator.generate(directory, String.format("maze%dx%d.xml", size, size),
+                                                   LevelGenerator.Settings.of(size, size), MAZE_SEED));
+        }
+
+        CoreBenchmarks benchmarks = new CoreBenchmarks(properties);
+        benchmarks.logging();
+        for (String level : levels)
+            benchmarks.level(level);
+    }
+
+
+    /**
+     * Run the benchmarks of the game callback, which do not depend on any level.
+     */
+    private void logging() throws Exception {
+        GameCallback callback = new GameCallback(Writer.nullWriter());
+        runner.run("GameCallback.writeString", "-", () -> callback.writeString(LOG_RECORD));
+    }
+
+    /**
+     * Run the benchmarks of a level.
+     * @param xmlFile the level's XML file
+     */
+    private void level(String xmlFile) throws Exception {
+        String name = new File(xmlFile).getName();
+        LevelTemplate level = LevelTemplate.load(xmlFile, properties);
+        GameInstance game = new GameInstance(level, GameCallback.silent());
+        ObjectManager manager = game.getManager();
+        Game.Dimension dimension = level.getDimension();
+
+        // every location of the level, and the walls
+        Location[] locations = new Location[dimension.width() * dimension.height()];
+        for (int i = 0; i < locations.length; i++)
+            locations[i] = new Location(i % dimension.width(), i / dimension.width());
+        int[] next = {0};
+        runner.run("HashLocation.hashCode", name, () -> {
+            Location location = locations[next[0]++ % locations.length];
+            BenchmarkRunner.consume(new HashLocation(location).hashCode());
+        });
+        runner.run("HashLocation.get", name, () -> {
+            Location location = locations[next[0]++ % locations.length];
+            BenchmarkRunner.consume(HashLocation.get(manager.getWalls(), location));
+        });
+
+        // item queries and level checking
+        runner.run("ObjectManager.getMandatoryItems", name,
+                   () -> BenchmarkRunner.consume(manager.getMandatoryItems()));
+        LevelChecker checker = new LevelChecker(new GameCallback(Writer.nullWriter()));
+        checker.setXmlFile(xmlFile);
+        runner.run("LevelChecker.checkLevel", name, () -> BenchmarkRunner.consume(checker.checkLevel(manager)));
+        runner.run("XMLParser.parseXML", name, () -> BenchmarkRunner.consume(GameActor.withoutSprites(() -> {
+            ObjectManager parsed = new ObjectManager(dimension);
+            try {
+                XMLParser.parseXML(xmlFile, parsed);
+            } catch (Exception exception) {
+                throw new IllegalStateException(exception);
+            }
+            return parsed;
+        })));
+
+        // PacMan's moves and searches, on levels with a single start for PacMan
+        if (manager.getPacActorLocations().size() != 1)
+            return;
+        PacActor pacActor = manager.getPacActor();
+        int[] directions = {0, 90, 180, 270};
+        runner.run("LiveActor.nextLocation", name, () -> {
+            pacActor.setDirection(directions[next[0]++ & 3]);
+            BenchmarkRunner.consume(pacActor.nextLocation());
+        });
+        runner.run("LiveActor.canMove", name, () -> {
+            Location location = locations[next[0]++ % locations.length];
+            BenchmarkRunner.consume(pacActor.canMove(location) ? 1 : 0);
+        });
+        PathFinder pathFinder = new PathFinder();
+        runner.run("PathFinder.idsSingle", name, () -> BenchmarkRunner.consume(pathFinder.idsSingle(pacActor)));
+        runner.run("PathFinder.dfsGreedyCheck", name,
+                   () -> BenchmarkRunner.consume(pathFinder.dfsGreedyCheck(pacActor)));
+    }
+}
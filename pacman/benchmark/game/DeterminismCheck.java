@@ -0,0 +1,218 @@
+package game;
+import game.Game.STATUS;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+
+/**
+ * DeterminismCheck class, checking that a game plays out alike every time for the same seed. Each game of
+ * the corpus is played headlessly in auto mode twice, recording a replay of the first; both plays must end
+ * with the same status, ticks and score and hash every tick alike, and the replay, written to a file and
+ * read back, must play again without diverging from the hashes recorded. Halfway through the game, its state
+ * is also written to a binary stream and a checkpoint to a file, and each read back must put a new game
+ * exactly where the first one was.
+ * <p>
+ * The check is kept apart from the game's sources, as the benchmarks are, and is compiled and run from the
+ * <code> pacman </code> directory against them:
+ * <pre>
+ *     javac -encoding UTF-8 -d out -cp "lib/*" $(find src benchmark -name '*.java')
+ *     java -Djava.awt.headless=true -cp "out:lib/*" game.DeterminismCheck [--max-ticks 3000]
+ * </pre>
+ * It exits with a non-zero status if any check fails.
+ * @see HashStream
+ * @see ReplayRecorder
+ * @see ReplayPlayer
+ * @see GameState
+ * @see Checkpoint
+ */
+public class DeterminismCheck {
+    // corpus: a level of the level generator and a level of test/, with the autopilots to play them with
+    private static final int MAZE_SIZE = 64;
+    private static final long MAZE_SEED = 30006;
+    private static final String SAMPLE_LEVEL = "test/1sample_map1.xml";
+    private static final String SIMPLE_PROPERTIES = PropertiesLoader.PROPERTIES_PATH + "test.properties";
+    private static final String MULTIVERSE_PROPERTIES = PropertiesLoader.PROPERTIES_PATH + "test5.properties";
+    private static final String AUTO_PROPERTY = "PacMan" + PropertiesLoader.AUTO_EXTENSION;
+    private static final String AUTOPILOT_PROPERTY = "PacMan" + PropertiesLoader.AUTOPILOT_EXTENSION;
+
+    // default of the options
+    private static final int DEFAULT_MAX_TICKS = 3000;
+
+    private final Path directory;
+    private final int maxTicks;
+    private final ArrayList<String> failures = new ArrayList<>();
+
+    /**
+     * A game played to its end, or to the maximum number of ticks.
+     * @param status whether the game was won, lost, or neither
+     * @param ticks  the number of ticks played
+     * @param score  PacMan's final score
+     * @param hashes the state hash of every tick
+     * @param replay the replay recorded
+     */
+    private record Play(STATUS status, int ticks, int score, HashStream hashes, Replay replay) {}
+
+
+    /**
+     * Determinism check constructor.
+     * @param directory where the generated level and the files written are kept
+     * @param maxTicks  the maximum number of ticks per game
+     */
+    private DeterminismCheck(Path directory, int maxTicks) {
+        this.directory = directory;
+        this.maxTicks  = maxTicks;
+    }
+
+    /**
+     * Run the check.
+     * @param args the options
+     */
+    public static void main(String[] args) throws Exception {
+        int maxTicks = DEFAULT_MAX_TICKS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--max-ticks"))
+                maxTicks = Integer.parseInt(args[i + 1]);
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+
+        DeterminismCheck check = new DeterminismCheck(Files.createTempDirectory("determinism"), maxTicks);
+        String maze = LevelGenerator.generate(check.directory, String.format("maze%dx%d.xml", MAZE_SIZE, MAZE_SIZE),
+                                              LevelGenerator.Settings.of(MAZE_SIZE, MAZE_SIZE), MAZE_SEED);
+        check.checkGame(maze, SIMPLE_PROPERTIES, null);
+        check.checkGame(maze, MULTIVERSE_PROPERTIES, null);
+        check.checkGame(SAMPLE_LEVEL, MULTIVERSE_PROPERTIES, PropertiesLoader.MONTE_CARLO);
+
+        for (String failure : check.failures)
+            System.out.println("FAILED " + failure);
+        if (! check.failures.isEmpty())
+            System.exit(1);
+        System.out.println("All games played out alike");
+    }
+
+
+    /**
+     * Check a game: play it twice, play its replay again, and put it back halfway through.
+     * @param xmlFile        the level's XML file
+     * @param propertiesFile the properties file
+     * @param autopilot      the autopilot, or null for the default one
+     */
+    private void checkGame(String xmlFile, String propertiesFile, String autopilot) throws Exception {
+        Properties properties = PropertiesLoader.loadPropertiesFile(propertiesFile);
+        properties.setProperty(AUTO_PROPERTY, "true");
+        if (autopilot != null)
+            properties.setProperty(AUTOPILOT_PROPERTY, autopilot);
+        LevelTemplate level = LevelTemplate.load(xmlFile, properties);
+        String name = new File(xmlFile).getName() + "," + new File(propertiesFile).getName() +
+                      ((autopilot == null) ? "" : "," + autopilot);
+
+        // the same game twice
+        Play first  = play(level);
+        Play second = play(level);
+        expect(first.status() == second.status() && first.ticks() == second.ticks() &&
+               first.score() == second.score(), name, "played twice, ended differently");
+        expect(sameHashes(first.hashes(), second.hashes()), name, "played twice, hashed differently");
+
+        // its replay, through a file and played again
+        Path file = directory.resolve(new File(xmlFile).getName() + Replay.EXTENSION);
+        first.replay().write(file);
+        Replay replay = Replay.read(file);
+        expect(replay.getTicks() == first.ticks() && replay.getScore() == first.score() &&
+               replay.getSeed() == first.replay().getSeed() &&
+               replay.getInputs().equals(first.replay().getInputs()) &&
+               sameHashes(replay.getHashes(), first.hashes()), name, "replay read back differs from the one written");
+        ReplayPlayer player = new ReplayPlayer(replay, xmlFile, properties, GameCallback.silent());
+        player.playToEnd();
+        expect(player.firstDivergence() == -1 && player.getGame().getSteps() == first.ticks() &&
+               player.getGame().getScore() == first.score(), name, "replay played again diverged");
+        checkRoundTrips(level, name, first.ticks() / 2);
+
+        System.out.printf("%s: %s after %d ticks, score %d%n", name, first.status(), first.ticks(), first.score());
+    }
+
+    /**
+     * Check that a game's state and its checkpoint, taken after a number of ticks and read back, put a new
+     * game exactly where the game was.
+     * @param level the level template
+     * @param name  the game's name, for the failures
+     * @param ticks the number of ticks to play before taking them
+     */
+    private void checkRoundTrips(LevelTemplate level, String name, int ticks) throws IOException {
+        GameInstance game = new GameInstance(level, GameCallback.silent());
+        game.run(ticks);
+        ObjectManager manager = game.getManager();
+        long hash = StateHash.of(manager);
+
+        // the game state, through a binary stream
+        byte[] written = encode(GameState.of(manager));
+        GameState state = GameState.read(new DataInputStream(new ByteArrayInputStream(written)));
+        GameInstance restored = new GameInstance(level, GameCallback.silent());
+        restored.restore(state, ticks);
+        expect(StateHash.of(restored.getManager()) == hash && restored.getScore() == game.getScore() &&
+               Arrays.equals(encode(GameState.of(restored.getManager())), written),
+               name, "game state read back differs from the one written");
+
+        // the checkpoint, through a file
+        Path file = directory.resolve(new File(level.getXmlFile()).getName() + Checkpoint.EXTENSION);
+        Checkpoint.of(manager, ticks).write(file);
+        GameInstance resumed = Checkpoint.read(file).resume(level, GameCallback.silent());
+        expect(StateHash.of(resumed.getManager()) == hash && resumed.getSteps() == ticks &&
+               resumed.getScore() == game.getScore(), name, "checkpoint read back differs from the one written");
+    }
+
+    /**
+     * Encode a game state.
+     * @param state the game state
+     * @return      its binary encoding
+     */
+    private static byte[] encode(GameState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Play a game, recording its hashes and its replay.
+     * @param level the level template
+     * @return      the game played
+     */
+    private Play play(LevelTemplate level) throws IOException {
+        GameInstance game = new GameInstance(level, GameCallback.silent());
+        ObjectManager manager = game.getManager();
+        HashStream hashes = new HashStream();
+        ReplayRecorder recorder = new ReplayRecorder(manager, level.getXmlFile(),
+                                                     ReplayRecorder.DEFAULT_SNAPSHOT_INTERVAL);
+        manager.setHashStream(hashes);
+        manager.setReplayRecorder(recorder);
+        game.run(maxTicks);
+        return new Play(game.getStatus(), game.getSteps(), game.getScore(), hashes, recorder.toReplay());
+    }
+
+    /**
+     * Check whether two hash streams recorded the same ticks with the same hashes.
+     * @param a a stream
+     * @param b another stream
+     * @return  True if they are the same, False if otherwise
+     */
+    private static boolean sameHashes(HashStream a, HashStream b) {
+        return a.size() == b.size() && HashStream.firstDivergence(a, b) == -1;
+    }
+
+    /**
+     * Record a failure if a condition does not hold.
+     * @param condition the condition
+     * @param game      the game checked
+     * @param message   what failed
+     */
+    private void expect(boolean condition, String game, String message) {
+        if (! condition)
+            failures.add(game + ": " + message);
+    }
+}
@@ -0,0 +1,294 @@
+package game;
+import game.Game.STATUS;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+
+/**
+ * GameBenchmarks class, the end-to-end benchmark of the game: every level of <code> test/ </code>, played
+ * with each of the <code> properties/test*.properties </code> configurations, and large levels of the level generator,
+ * are played headlessly in auto mode from start to end. For each game, it reports the ticks played per
+ * second, the median, 99th percentile and worst tick latencies, the bytes allocated per tick, and how long
+ * PacMan took to clear the level, in ticks and in game time. Games ending early are played again until
+ * enough ticks are timed for the percentiles to mean something.
+ * <p>
+ * Results are written as CSV, and can be compared against those of a previous run, taken as the baseline;
+ * the benchmark then exits with a non-zero status if any game got slower than the threshold allows, in
+ * ticks per second or in 99th percentile tick latency. Run it from the <code> pacman </code> directory,
+ * once compiled along with the game's sources:
+ * <pre>
+ *     java -Djava.awt.headless=true -cp "out:lib/*" game.GameBenchmarks
+ *          [--output results.csv] [--baseline baseline.csv] [--threshold 0.1] [--max-ticks 5000]
+ * </pre>
+ * Timings depend on the machine, so baselines are meant to be taken on the machine comparing against them.
+ * @see CoreBenchmarks
+ * @see LevelGenerator
+ * @see GameInstance
+ */
+public class GameBenchmarks {
+    // corpus
+    private static final String LEVELS_DIRECTORY = "test";
+    private static final String PROPERTIES_PREFIX = "test";
+    private static final int[] MAZE_SIZES = {64, 128};
+    private static final long MAZE_SEED = 30006;
+    private static final String AUTO_PROPERTY = "PacMan" + PropertiesLoader.AUTO_EXTENSION;
+
+    // defaults of the options
+    private static final String DEFAULT_OUTPUT = "game-benchmarks.csv";
+    private static final double DEFAULT_THRESHOLD = 0.1;
+    private static final int DEFAULT_MAX_TICKS = 5000;
+
+    // fewest ticks timed per game, playing it again if it ends sooner
+    private static final int MIN_TICKS = 1000;
+
+    // game time of a tick, in seconds
+    private static final double SECONDS_PER_TICK =
+            Game.SIMULATION_PERIOD * LiveActor.SLOW_DOWN / 1000.0;
+
+    // columns of the results
+    private static final String HEADER =
+            "level,properties,status,ticks,ticks_per_second,p50_micros,p99_micros,max_micros," +
+            "bytes_per_tick,clear_ticks,clear_seconds";
+
+    // allocation counter of the current thread
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The result of a game.
+     * @param level          the level's file name
+     * @param properties     the properties' file name
+     * @param status         whether the game was won, lost, or neither within the maximum number of ticks
+     * @param ticks          the number of ticks played
+     * @param ticksPerSecond the ticks played per second of wall time
+     * @param p50Micros      the median tick latency, in microseconds
+     * @param p99Micros      the 99th percentile tick latency, in microseconds
+     * @param maxMicros      the worst tick latency, in microseconds
+     * @param bytesPerTick   the bytes allocated per tick
+     * @param clearTicks     the ticks taken to clear the level, or -1 if not cleared
+     * @param clearSeconds   the game time taken to clear the level, in seconds, or -1 if not cleared
+     */
+    public record Result(String level, String properties, STATUS status, int ticks, double ticksPerSecond,
+                         double p50Micros, double p99Micros, double maxMicros, double bytesPerTick,
+                         int clearTicks, double clearSeconds) {
+        /**
+         * Get the key identifying the game among the results.
+         * @return the key
+         */
+        public String key() {
+            return level + "," + properties;
+        }
+
+        /**
+         * Format the result as a CSV line.
+         * @return the line
+         */
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%.1f",
+                    level, properties, status, ticks, ticksPerSecond, p50Micros, p99Micros, maxMicros,
+                    bytesPerTick, clearTicks, clearSeconds);
+        }
+
+        /**
+         * Parse a result from a CSV line.
+         * @param line the line
+         * @return     the result
+         */
+        public static Result fromCsv(String line) {
+            String[] fields = line.split(",");
+            return new Result(fields[0], fields[1], STATUS.valueOf(fields[2]), Integer.parseInt(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Double.parseDouble(fields[6]),
+                    Double.parseDouble(fields[7]), Double.parseDouble(fields[8]), Integer.parseInt(fields[9]),
+                    Double.parseDouble(fields[10]));
+        }
+    }
+
+
+    /**
+     * Run the benchmark.
+     * @param args the options
+     */
+    public static void main(String[] args) throws Exception {
+        // options
+        String output = DEFAULT_OUTPUT;
+        String baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+        int maxTicks = DEFAULT_MAX_TICKS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--output"    -> output = args[i + 1];
+                case "--baseline"  -> baseline = args[i + 1];
+                case "--threshold" -> threshold = Double.parseDouble(args[i + 1]);
+                case "--max-ticks" -> maxTicks = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        // corpus: every valid level with every configuration, and the generated mazes
+        ArrayList<String> levels = new ArrayList<>(files(LEVELS_DIRECTORY, "", ".xml"));
+        Path directory = Files.createTempDirectory("mazes");
+        for (int size : MAZE_SIZES)
+            levels.add(LevelGenerator.generate(directory, String.format("maze%dx%d.xml", size, size),
+                                               LevelGenerator.Settings.of(size, size), MAZE_SEED));
+        ArrayList<String> configurations = files(PropertiesLoader.PROPERTIES_PATH, PROPERTIES_PREFIX, ".properties");
+
+        // warm up on the whole corpus once, then measure
+        ArrayList<Result> results = new ArrayList<>();
+        for (int pass = 0; pass < 2; pass++) {
+            results.clear();
+            for (String level : levels)
+                for (String configuration : configurations) {
+                    Result result = play(level, configuration, maxTicks);
+                    if (result != null)
+                        results.add(result);
+                }
+        }
+
+        // report, and compare against the baseline
+        try (PrintWriter out = new PrintWriter(new FileWriter(output))) {
+            out.println(HEADER);
+            for (Result result : results) {
+                out.println(result.toCsv());
+                System.out.println(result.toCsv());
+            }
+        }
+        if (baseline != null && ! compare(read(baseline), results, threshold))
+            System.exit(1);
+    }
+
+    /**
+     * Get the files of a directory with a given prefix and extension, sorted by name.
+     * @param directory the directory
+     * @param prefix    the prefix
+     * @param extension the extension
+     * @return          the files' paths
+     */
+    private static ArrayList<String> files(String directory, String prefix, String extension) {
+        ArrayList<String> paths = new ArrayList<>();
+        File[] files = new File(directory).listFiles(
+                (parent, name) -> name.startsWith(prefix) && name.endsWith(extension));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files)
+                paths.add(file.getPath());
+        }
+        return paths;
+    }
+
+
+    /**
+     * Play a game in auto mode and measure it.
+     * @param xmlFile        the level's XML file
+     * @param propertiesFile the properties file
+     * @param maxTicks       the maximum number of ticks
+     * @return               the result, or null if the level is not valid
+     */
+    private static Result play(String xmlFile, String propertiesFile, int maxTicks) throws Exception {
+        Properties properties = PropertiesLoader.loadPropertiesFile(propertiesFile);
+        properties.setProperty(AUTO_PROPERTY, "true");
+        LevelTemplate level = LevelTemplate.load(xmlFile, properties);
+        GameInstance game = new GameInstance(level, GameCallback.silent());
+        LevelChecker checker = new LevelChecker(new GameCallback(Writer.nullWriter()));
+        checker.setXmlFile(xmlFile);
+        if (! checker.checkLevel(game.getManager()))
+            return null;
+
+        // play the game again and again until enough ticks are timed, as most games of the levels are short
+        long[] latencies = new long[Math.max(maxTicks, MIN_TICKS)];
+        long thread = Thread.currentThread().getId();
+        long startBytes = THREADS.getThreadAllocatedBytes(thread);
+        long elapsed = 0;
+        int timed = 0, ticks = 0;
+        STATUS status = null;
+        do {
+            if (status != null)
+                game = new GameInstance(level, GameCallback.silent());
+            ticks = 0;
+            long start = System.nanoTime();
+            while (game.getStatus() == STATUS.NA && ticks < maxTicks) {
+                long tickStart = System.nanoTime();
+                game.step();
+                long latency = System.nanoTime() - tickStart;
+                if (timed == latencies.length)
+                    latencies = Arrays.copyOf(latencies, timed * 2);
+                latencies[timed++] = latency;
+                ticks++;
+            }
+            elapsed += System.nanoTime() - start;
+            status = game.getStatus();
+        } while (timed < MIN_TICKS && ticks > 0);
+        long bytes = THREADS.getThreadAllocatedBytes(thread) - startBytes;
+
+        // summarize; games are deterministic, so every one played ends alike
+        Arrays.sort(latencies, 0, timed);
+        boolean cleared = status == STATUS.WIN;
+        return new Result(new File(xmlFile).getName(), new File(propertiesFile).getName(), status,
+                ticks, timed / (elapsed / 1e9), percentile(latencies, timed, 0.5) / 1e3,
+                percentile(latencies, timed, 0.99) / 1e3, latencies[timed - 1] / 1e3, (double) bytes / timed,
+                cleared ? ticks : -1, cleared ? ticks * SECONDS_PER_TICK : -1);
+    }
+
+    /**
+     * Get a percentile of sorted values, by the nearest rank.
+     * @param sorted     the sorted values
+     * @param count      the number of values
+     * @param percentile the percentile, between 0 and 1
+     * @return           the value at the percentile
+     */
+    private static long percentile(long[] sorted, int count, double percentile) {
+        int rank = (int) Math.ceil(percentile * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+
+    /**
+     * Read the results of a previous run.
+     * @param file the CSV file
+     * @return     the results, by the key of their game
+     */
+    private static HashMap<String, Result> read(String file) throws IOException {
+        HashMap<String, Result> results = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line = in.readLine();
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Result result = Result.fromCsv(line);
+                results.put(result.key(), result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compare results against a baseline, reporting every regression beyond the threshold: fewer ticks per
+     * second, or a longer 99th percentile tick latency. Games missing from the baseline are not compared.
+     * @param baseline  the baseline's results, by key
+     * @param results   the results
+     * @param threshold the allowed relative regression, e.g. 0.1 for 10%
+     * @return          True if there is no regression
+     */
+    private static boolean compare(HashMap<String, Result> baseline, ArrayList<Result> results, double threshold) {
+        boolean passed = true;
+        for (Result result : results) {
+            Result base = baseline.get(result.key());
+            if (base == null) continue;
+            if (result.ticksPerSecond() < base.ticksPerSecond() * (1 - threshold)) {
+                System.err.printf(Locale.ROOT, "REGRESSION %s: %.1f ticks/s, baseline %.1f%n",
+                        result.key(), result.ticksPerSecond(), base.ticksPerSecond());
+                passed = false;
+            }
+            if (result.p99Micros() > base.p99Micros() * (1 + threshold)) {
+                System.err.printf(Locale.ROOT, "REGRESSION %s: p99 %.1f us, baseline %.1f us%n",
+                        result.key(), result.p99Micros(), base.p99Micros());
+                passed = false;
+            }
+        }
+        return passed;
+    }
+}
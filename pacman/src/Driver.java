@@ -7,6 +7,7 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Properties;
 
 
@@ -14,7 +15,11 @@ import java.util.Properties;
  * Main entry to program. It deals with instantiating the Game and the Controller. In instantiating
  * Game, it will check for Game's validity. The Controller will be responsible for checking Level's
  * validity of Game.
+ * <p>
+ * Run with <code> --check </code> followed by level folders or files, it only validates them headlessly,
+ * exiting with the validation's result instead of opening the game.
  * @see Controller
+ * @see LevelPackValidator
  * @see	Game
  *
  * @author The Duy Nguyen            - 1100548 (theduyn@student.unimelb.edu.au)
@@ -29,6 +34,10 @@ public class Driver {
 	 * Main entry to program.
 	 */
 	public static void main(String[] args) {
+		// headless validation of level packs
+		if (args.length > 0 && args[0].equals(LevelPackValidator.FLAG))
+			System.exit(LevelPackValidator.run(Arrays.copyOfRange(args, 1, args.length)));
+
 		// argument parsing
 		String path = (args.length == 0) ? "" : args[0];
 
@@ -44,6 +53,7 @@ public class Driver {
 					? XMLParser.getDimensions(playableLevels.get(0))
 					: new Game.Dimension(Game.DEFAULT_WIDTH, Game.DEFAULT_HEIGHT);
 			Properties properties = PropertiesLoader.loadPropertiesFile(PROPERTIES_FILE);
+			MetricsExporter.start(properties);
 			Game game = new Game(dimension, properties, gameCallback);
 			Controller controller = new Controller(game, gameChecker.getGameType(), playableLevels, gameCallback);
 			controller.handle();
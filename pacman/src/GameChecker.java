@@ -1,9 +1,11 @@
 import editor.Controller.GameType;
+import game.LevelChecker.Finding;
 import game.utility.GameCallback;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -15,6 +17,8 @@ import java.util.regex.Pattern;
 public class GameChecker {
     public static final String VALID_MAP_FILE = "xml";
     private GameType gameType;
+    // the rules broken by the game folder last checked
+    private final ArrayList<Finding> findings = new ArrayList<>();
 
 
     /**
@@ -26,14 +30,35 @@ public class GameChecker {
     }
 
     /**
-     * Call to game callback to report no maps found.
+     * Get the rules broken by the game folder last checked, in the same form as the level checker's.
+     * @return the findings, in the order they were found
+     */
+    public List<Finding> getFindings() {
+        return List.copyOf(findings);
+    }
+
+    /**
+     * Call to game callback to report no maps found, recording it as a finding of the path checked.
      * @param directory the directory string
+     * @param path      the path checked
      * @param callback  the game callback
      */
-    private void callbackNoMap(String directory, GameCallback callback) {
+    private void callbackNoMap(String directory, String path, GameCallback callback) {
+        findings.add(new Finding(path, "noMaps", logNoMap(directory, callback), List.of()));
+    }
+
+    /**
+     * Call to game callback to report no maps found, without recording it as a finding; for folders whose
+     * maps are there but broke another rule, already recorded.
+     * @param directory the directory string
+     * @param callback  the game callback
+     * @return          the line logged
+     */
+    private String logNoMap(String directory, GameCallback callback) {
         String failLog = String.format("[Game %s - no maps found]", directory);
         callback.writeString(failLog);
         gameType = GameType.IS_NULL;
+        return failLog;
     }
 
 
@@ -56,8 +81,9 @@ public class GameChecker {
      * @return 		    whether the gameCheck fail or succeed
      */
     public ArrayList<String> gameCheck(String path, GameCallback callback) {
+        findings.clear();
         if (path.isEmpty()) {
-            callbackNoMap(path, callback);
+            callbackNoMap(path, path, callback);
             return null;
         }
         File directory = new File(path);
@@ -77,7 +103,7 @@ public class GameChecker {
 
         // otherwise, it cannot be found
         else {
-            callbackNoMap(path, callback);
+            callbackNoMap(path, path, callback);
             return null;
         }
 
@@ -87,10 +113,11 @@ public class GameChecker {
 
         // no game maps found
         if (gameMaps == null) {
-            callbackNoMap(dirName, callback);
+            callbackNoMap(dirName, path, callback);
             return null;
         }
         HashMap<Integer, ArrayList<String>> levelTally = new HashMap<>();
+        HashMap<Integer, ArrayList<String>> levelPaths = new HashMap<>();
 
         // build a hashmap with the key as levels and filename as value
         for (File map: gameMaps) {
@@ -108,6 +135,7 @@ public class GameChecker {
             // add filename to hashmap given that it is valid
             if (Character.isDigit(firstChar)) {
                 Integer decimalRep = Integer.parseInt(numString);
+                levelPaths.computeIfAbsent(decimalRep, level -> new ArrayList<>()).add(map.getPath());
 
                 // add file to arraylist
                 if (levelTally.containsKey(decimalRep))
@@ -120,7 +148,7 @@ public class GameChecker {
             }
         }
         // sort the key (or level number)
-        if (gameCheckLog(levelTally, dirName, callback)) {
+        if (gameCheckLog(levelTally, levelPaths, dirName, path, callback)) {
             TreeMap<Integer, ArrayList<String>> sorted = new TreeMap<>(levelTally);
             ArrayList<String> playableLevels = new ArrayList<>();
             for (HashMap.Entry<Integer, ArrayList<String>> entry : sorted.entrySet())
@@ -128,43 +156,50 @@ public class GameChecker {
 
             // if no map within valid folder
             if (playableLevels.isEmpty()) {
-                callbackNoMap(path, callback);
+                callbackNoMap(path, path, callback);
                 return null;
             }
             return playableLevels;
         }
-        callbackNoMap(dirName, callback);
+        logNoMap(dirName, callback);
         return null;
     }
 
 
     /**
-     * Write the check fails for game checking to the log
+     * Write the check fails for game checking to the log, recording each as a finding of the files at fault
      * @param levelTally hashmap of files at a particular level
+     * @param levelPaths hashmap of the files' paths at a particular level
      * @param dirName    the name of the directory
+     * @param path       the path of the directory
      * @return           whether the directory has fail any game check
      */
-    private boolean gameCheckLog(HashMap<Integer, ArrayList<String>> levelTally, String dirName,
-                                        GameCallback callback)
+    private boolean gameCheckLog(HashMap<Integer, ArrayList<String>> levelTally,
+                                 HashMap<Integer, ArrayList<String>> levelPaths, String dirName, String path,
+                                 GameCallback callback)
     {
         boolean pass = true;
 
         // check the hashmap for check failure and print the corresponding issues
         if (levelTally.isEmpty()) {
-            callbackNoMap(dirName, callback);
+            callbackNoMap(dirName, path, callback);
             pass = false;
         }
         else {
             // loop through hashmap, check that the array list is greater than 1.
-            for (ArrayList<String> level : levelTally.values())
+            for (HashMap.Entry<Integer, ArrayList<String>> entry : levelTally.entrySet()) {
+                ArrayList<String> level = entry.getValue();
                 if (level.size() > 1) {
                     String dupFiles = String.join("; ", level);
                     String failLog = String.format(
                             "[Game %s - multiple maps at same level: %s]", dirName, dupFiles);
                     callback.writeString(failLog);
+                    for (String file : levelPaths.get(entry.getKey()))
+                        findings.add(new Finding(file, "sameLevel", failLog, List.of()));
                     pass = false;
                     gameType = GameType.IS_NULL;
                 }
+            }
         }
         return pass;
     }
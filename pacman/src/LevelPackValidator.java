@@ -0,0 +1,220 @@
+import game.GameInstance;
+import game.LevelChecker;
+import game.LevelChecker.Finding;
+import game.LevelTemplate;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import ch.aplu.jgamegrid.Location;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * LevelPackValidator class, checking level packs from the command line without any window, for continuous
+ * integration. Each folder is put through the game checker's rules, and every level in it through the level
+ * checker's, the levels of all folders being checked in parallel; single level files can be given as well.
+ * <p>
+ * Every rule broken is written to a JSON report, with the file breaking it, the rule's name, the message the
+ * game would log, and the offending coordinates. The exit code tells whether the packs are valid:
+ * <code> 0 </code> if they are, <code> 1 </code> if any rule is broken, and <code> 2 </code> if the
+ * validator could not run, such as for bad arguments or a report that cannot be written.
+ * <p>
+ * Levels are loaded headlessly, as game instances without sprites, so the validator never initialises the
+ * display and starts as fast as the JVM does.
+ * @see GameChecker
+ * @see LevelChecker
+ */
+public class LevelPackValidator {
+    // the flag the driver runs the validator with, and its own options
+    public static final String FLAG = "--check";
+    private static final String REPORT_OPTION = "--report";
+
+    // exit codes
+    public static final int VALID = 0;
+    public static final int INVALID = 1;
+    public static final int ERROR = 2;
+
+    // properties levels are loaded with; the checker's rules do not depend on them
+    private static final String VERSION = "simple";
+    private static final int SEED = 0;
+
+
+    /**
+     * Check every level of a game folder, or a single level file, and the folder itself against the game
+     * checker's rules.
+     * @param path     the folder's or the file's path
+     * @param findings the findings the game checker's are added to
+     * @return         the levels to check
+     */
+    private static List<String> levelsOf(String path, List<Finding> findings) {
+        GameChecker gameChecker = new GameChecker();
+        gameChecker.gameCheck(path, GameCallback.silent());
+        findings.addAll(gameChecker.getFindings());
+
+        File file = new File(path);
+        File[] files = file.isDirectory() ? file.listFiles() : new File[]{file};
+        ArrayList<String> levels = new ArrayList<>();
+        if (files == null)
+            return levels;
+        Arrays.sort(files);
+        for (File level : files)
+            if (level.isFile() && level.getName().toLowerCase().endsWith("." + GameChecker.VALID_MAP_FILE))
+                levels.add(level.getPath());
+        return levels;
+    }
+
+    /**
+     * Check a level against the level checker's rules.
+     * @param xmlFile the level's XML file
+     * @return        the findings, with the level's path as their file
+     */
+    private static List<Finding> checkLevel(String xmlFile) {
+        Properties properties = new Properties();
+        properties.setProperty(PropertiesLoader.VERSION, VERSION);
+        properties.setProperty(PropertiesLoader.SEED, String.valueOf(SEED));
+        LevelChecker checker = new LevelChecker(GameCallback.silent());
+        checker.setXmlFile(xmlFile);
+        try {
+            GameInstance game = new GameInstance(LevelTemplate.load(xmlFile, properties), GameCallback.silent());
+            checker.checkLevel(game);
+        } catch (ParserConfigurationException | IOException | SAXException | RuntimeException exception) {
+            String message = String.format("[Level %s – cannot be loaded: %s]", xmlFile, exception);
+            return List.of(new Finding(xmlFile, "load", message, List.of()));
+        }
+        return checker.getFindings().stream()
+                      .map(finding -> new Finding(xmlFile, finding.rule(), finding.message(), finding.locations()))
+                      .toList();
+    }
+
+
+    /**
+     * Validate level packs.
+     * @param paths  the folders and level files
+     * @param report where the JSON report is written
+     * @return       the findings, of the game checker first, then of the levels in order
+     * @throws IOException if the report cannot be written
+     */
+    public static List<Finding> validate(List<String> paths, Writer report) throws IOException {
+        ArrayList<Finding> findings = new ArrayList<>();
+        ArrayList<String> levels = new ArrayList<>();
+        for (String path : paths)
+            levels.addAll(levelsOf(path, findings));
+        levels.parallelStream()
+              .map(LevelPackValidator::checkLevel)
+              .toList()
+              .forEach(findings::addAll);
+        writeReport(report, levels.size(), findings);
+        return findings;
+    }
+
+    /**
+     * Write the JSON report.
+     * @param out      where it is written
+     * @param levels   the number of levels checked
+     * @param findings the findings
+     * @throws IOException if the report cannot be written
+     */
+    private static void writeReport(Writer out, int levels, List<Finding> findings) throws IOException {
+        out.write("{\n");
+        out.write(String.format("  \"valid\": %b,\n", findings.isEmpty()));
+        out.write(String.format("  \"levels\": %d,\n", levels));
+        out.write("  \"findings\": [");
+        for (int i = 0; i < findings.size(); i++) {
+            Finding finding = findings.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write(String.format("    {\"file\": %s, \"rule\": %s, \"message\": %s, \"locations\": [",
+                                    quote(finding.file()), quote(finding.rule()), quote(finding.message())));
+            List<Location> locations = finding.locations();
+            for (int j = 0; j < locations.size(); j++)
+                out.write(String.format("%s{\"x\": %d, \"y\": %d}", (j == 0) ? "" : ", ",
+                                        locations.get(j).getX(), locations.get(j).getY()));
+            out.write("]}");
+        }
+        out.write(findings.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        out.flush();
+    }
+
+    /**
+     * Quote a string as a JSON string.
+     * @param string the string
+     * @return       the JSON string
+     */
+    private static String quote(String string) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : string.toCharArray()) {
+            switch (c) {
+                case '"'  -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default   -> {
+                    if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                    else builder.append(c);
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+
+    /**
+     * Validate level packs from the command line.
+     * @param args <code> [--report {file}] {folder or level}... </code>; the report is written to the
+     *             standard output unless a file is given
+     * @return     the exit code
+     */
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        ArrayList<String> paths = new ArrayList<>();
+        Path reportFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(REPORT_OPTION) && i + 1 < args.length)
+                reportFile = Path.of(args[++i]);
+            else
+                paths.add(args[i]);
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: " + FLAG + " [" + REPORT_OPTION + " {file}] {folder or level}...");
+            return ERROR;
+        }
+
+        try {
+            Writer report = (reportFile == null) ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                                                 : Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+            List<Finding> findings;
+            try {
+                findings = validate(paths, report);
+            } finally {
+                if (reportFile != null)
+                    report.close();
+            }
+            System.err.printf("%d rule(s) broken%n", findings.size());
+            return findings.isEmpty() ? VALID : INVALID;
+        } catch (IOException exception) {
+            System.err.println("Cannot write the report: " + exception.getMessage());
+            return ERROR;
+        }
+    }
+
+    /**
+     * Validate level packs from the command line, exiting with the validation's exit code.
+     * @param args <code> [--report {file}] {folder or level}... </code>
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+}
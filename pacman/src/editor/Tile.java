@@ -1,9 +1,9 @@
 package editor;
 
+import game.utility.SpriteCache.Sprite;
+
+import java.awt.Graphics;
 import java.awt.Image;
-import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
-import java.awt.image.WritableRaster;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -54,8 +54,8 @@ public class Tile {
 	// The character that will be used in the map file when saved.
 	private final char character;
 
-	// The image that will be used in the editor.
-	private final BufferedImage image;
+	// The sprite that will be used in the editor, shared with every other user of its image.
+	private final Sprite sprite;
 	private final String filePath;
 
 
@@ -107,20 +107,31 @@ public class Tile {
 	/**
 	 * Construct a tile.
 	 * @param filePath The path to the file.
+	 * @param sprite The tile's sprite.
 	 * @param character The character that will represent the tile when saved.
 	 */
-	public Tile(final String filePath, BufferedImage image, final char character) {
+	public Tile(final String filePath, Sprite sprite, final char character) {
 		this.filePath = filePath;
-		this.image = image;
+		this.sprite = sprite;
 		this.character = character;
 	}
 
 	/**
-	 * Get the tile as an image.
-	 * @return Image The tile icon.
+	 * Get the tile as an image, shared with the sprite cache; it must not be drawn on.
+	 * @return Image The tile image.
 	 */
 	public Image getImage() {
-		return deepCopy(image);
+		return sprite.image();
+	}
+
+	/**
+	 * Draw the tile straight from the sprite atlas.
+	 * @param g The graphics to draw to.
+	 * @param x The tile's left on the graphics.
+	 * @param y The tile's top on the graphics.
+	 */
+	public void draw(Graphics g, int x, int y) {
+		sprite.draw(g, x, y);
 	}
 
 	/**
@@ -128,7 +139,7 @@ public class Tile {
 	 * @return Icon The tile icon.
 	 */
 	public Icon getIcon() {
-		return new ImageIcon(image);
+		return new ImageIcon(sprite.image());
 	}
 	
 	/**
@@ -148,16 +159,4 @@ public class Tile {
 	public String toString() {
 		return "character: " + character + " - file: " + filePath;
 	}
-
-	/**
-	 * Get the deep copy of the tile with all of its properties.
-	 * @param image the buffered image
-	 * @return		the deep copy
-	 */
-	private static BufferedImage deepCopy(BufferedImage image) {
-		ColorModel cm = image.getColorModel();
-		boolean isAlphaPreMultiplied = cm.isAlphaPremultiplied();
-		WritableRaster raster = image.copyData(null);
-		return new BufferedImage(cm, raster, isAlphaPreMultiplied, null);
-	}
 }
@@ -1,10 +1,8 @@
 package editor;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import game.utility.SpriteCache;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -20,9 +18,11 @@ import java.util.TreeMap;
  */
 public class TileManager {
 	/**
-	 * Returns a list with Tiles, constructed with images from the given folderPath.
+	 * Returns a list with Tiles, constructed with images from the given folderPath. The images are taken
+	 * from the sprite cache, so they are only decoded the first time the folder is read.
 	 * @param  folderPath Path to image folder.
 	 * @return 			  List of tiles.
+	 * @throws java.io.UncheckedIOException if an image cannot be read
 	 */
 	public static List<Tile> getTilesFromFolder(final String folderPath) {
 		List<Tile> tiles = new ArrayList<>();
@@ -35,18 +35,8 @@ public class TileManager {
 		for (File f : listOfFiles)
 			map.put(f.getName(), f);
 		for (File f : map.values()) {
-
-			// check for valid path
 			String filePath = f.getPath();
-			try {
-				BufferedImage image = ImageIO.read(new File(filePath));
-				tiles.add(new Tile(filePath, image, (char)character++));
-			} catch (IOException e) {
-				e.printStackTrace();
-				System.err.println(e.getMessage());
-				System.err.println("Bad file path: " + filePath);
-				System.exit(0);
-			}
+			tiles.add(new Tile(filePath, SpriteCache.get(filePath), (char)character++));
 		}
 		return tiles;
 	}
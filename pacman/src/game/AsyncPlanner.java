@@ -0,0 +1,231 @@
+package game;
+import game.utility.Metrics;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.LinkedList;
+import java.util.concurrent.*;
+
+
+/**
+ * AsyncPlanner class running auto-mode PacMan's planning off the simulation thread. Every few moves, PacMan's
+ * side takes a cheap, immutable snapshot of the world and hands it to a background planner, which runs the
+ * route and safety planners against it and returns the resulting path through a future. Meanwhile, PacMan
+ * keeps following its previous path, or takes a cheap fallback move if it has none, so the simulation tick
+ * does not wait on a search.
+ * <p>
+ * A plan is taken in a fixed number of moves after its request, which leaves it all the moves in between to
+ * finish in the background, and the planners' budgets count work rather than time, so a game plays out alike
+ * for the same seed however fast the machine and wherever the requests run. Should a plan still not be done
+ * by then, the tick waits for it a bounded time only, and if it is still late, the late plan is logged and
+ * taken in as soon as it is done instead, giving up on the game playing out alike.
+ * <p>
+ * At most one request is in flight per PacMan, so the planners themselves are only ever used by one thread
+ * at a time.
+ * @see Autopilot
+ * @see WorldSnapshot
+ * @see RoutePlanner
+ * @see SafetyPlanner
+ */
+public class AsyncPlanner implements Autopilot {
+    // background threads shared by all planners, which never keep the program alive on their own
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "PathPlanner");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // the planners, only ever touched by the request in flight, and where requests run
+    private final ObjectManager manager;
+    private final Executor executor;
+    private final NavigationGrid grid;
+    private final RoutePlanner routePlanner;
+    private final SafetyPlanner safetyPlanner;
+
+    // moves after its request at which a plan is taken in, and how long the tick waits for it then at most
+    private static final int PLAN_MOVES = 2;
+    private static final long PLAN_WAIT_MILLIS = 20;
+
+    // the request in flight, the moves made since it was sent, and the last snapshot taken
+    private CompletableFuture<Plan> pending = null;
+    private int pendingMoves = 0;
+    private WorldSnapshot snapshot = null;
+
+    /**
+     * A path planned from a given cell.
+     * @param source the cell PacMan was in when the snapshot was taken
+     * @param path   the list of locations to move to
+     */
+    private record Plan(int source, LinkedList<Location> path) {}
+
+
+    /**
+     * Async planner constructor, planning on the shared background threads. The navigation grid is taken
+     * right away, so it must be called from the simulation thread once the level has been loaded.
+     * @param manager the object manager
+     */
+    public AsyncPlanner(ObjectManager manager) {
+        this(manager, EXECUTOR);
+    }
+
+    /**
+     * Async planner constructor, planning with a given executor. A headless game passes one running the
+     * request on the calling thread, so its plans neither wait on nor compete for the shared threads; the
+     * plan is then taken in when due, exactly as it would be from the background.
+     * @param manager  the object manager
+     * @param executor the executor running the requests
+     */
+    public AsyncPlanner(ObjectManager manager, Executor executor) {
+        this.manager       = manager;
+        this.executor      = executor;
+        this.grid          = manager.getNavigationGrid();
+        this.routePlanner  = new RoutePlanner(grid);
+        this.safetyPlanner = new SafetyPlanner(grid);
+    }
+
+
+    /**
+     * Get the moves PacMan should follow from now on. The plan requested a set number of moves ago replaces
+     * the current moves if it is still relevant from PacMan's location, and a new request is then sent. If
+     * PacMan is left with nothing to follow, a fallback move is taken.
+     * @param location PacMan's location
+     * @param current  the moves PacMan currently follows
+     * @return         the moves to follow
+     */
+    @Override
+    public LinkedList<Location> nextMoves(Location location, LinkedList<Location> current) {
+        LinkedList<Location> moves = current;
+        int cell = grid.toCell(location);
+
+        // take in the plan requested, once it is due
+        if (pending != null && ++pendingMoves >= PLAN_MOVES && await()) {
+            Plan plan = adopt();
+            LinkedList<Location> adopted = (plan == null) ? null : catchUp(plan, cell);
+            if (adopted != null)
+                moves = adopted;
+        }
+
+        // send a new request
+        if (pending == null && manager.getNumMandatoryItems() > 0) {
+            WorldSnapshot request = WorldSnapshot.of(grid, manager, snapshot);
+            snapshot = request;
+            pending = CompletableFuture.supplyAsync(() -> plan(request), executor);
+            pendingMoves = 0;
+        }
+        if (moves.isEmpty())
+            moves = fallback(cell);
+        return moves;
+    }
+
+    /**
+     * Wait a bounded time for the plan in flight, on the move it is due; on later moves, it is only checked.
+     * A plan late on its due move is logged, as the game no longer plays out alike from then on.
+     * @return whether the plan is done
+     */
+    private boolean await() {
+        if (pending.isDone())
+            return true;
+        if (pendingMoves > PLAN_MOVES)
+            return false;
+        try {
+            pending.get(PLAN_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException exception) {
+            System.err.printf("Plan late by more than %d ms at %s; taking it in once done%n",
+                              PLAN_WAIT_MILLIS, manager.getPacActor().getLocation());
+            return false;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException exception) {
+            return true;
+        }
+    }
+
+    /**
+     * Take the plan in flight, which must be done, logging the planner's failure if it failed.
+     * @return the plan, or null if the planner failed
+     */
+    private Plan adopt() {
+        CompletableFuture<Plan> done = pending;
+        pending = null;
+        try {
+            return done.join();
+        } catch (CompletionException | CancellationException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Plan against a snapshot; runs on a background thread.
+     * @param snapshot the world snapshot
+     * @return         the plan
+     */
+    private Plan plan(WorldSnapshot snapshot) {
+        long start = System.nanoTime();
+        LinkedList<Location> path = routePlanner.nextPath(snapshot);
+        safetyPlanner.update(snapshot);
+        if (! safetyPlanner.isSafe(snapshot.getPacCell(), path))
+            path = safetyPlanner.safePath(snapshot, path);
+        Metrics.PLAN.recordSince(start);
+        return new Plan(snapshot.getPacCell(), path);
+    }
+
+    /**
+     * Bring a plan up to date with PacMan's moves since its snapshot was taken. If PacMan has since moved
+     * along the plan, the moves already made are dropped.
+     * @param plan the plan
+     * @param cell PacMan's current cell
+     * @return     the remaining moves, or null if PacMan has left the plan
+     */
+    private LinkedList<Location> catchUp(Plan plan, int cell) {
+        if (plan.source() == cell)
+            return plan.path();
+        LinkedList<Location> path = plan.path();
+        while (! path.isEmpty())
+            if (grid.toCell(path.removeFirst()) == cell)
+                return path;
+        return null;
+    }
+
+    /**
+     * A cheap move for when there is no plan to follow: step onto an adjacent item if there is one, or
+     * else to an adjacent cell not visited recently and free of monsters.
+     * @param cell PacMan's cell
+     * @return     a single move, or none
+     */
+    private LinkedList<Location> fallback(int cell) {
+        LinkedList<Location> moves = new LinkedList<>();
+        PacActor pacActor = manager.getPacActor();
+        Location unvisited = null;
+        for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+            int next = grid.neighbour(cell, move);
+            if (next == NavigationGrid.NONE) continue;
+            Location location = grid.toLocation(next);
+            Item item = HashLocation.get(manager.getItems(), location);
+            if (item != null && ! (item instanceof Ice)) {
+                moves.add(location);
+                return moves;
+            }
+            if (unvisited == null && pacActor.notVisited(location) && ! hasMonster(location))
+                unvisited = location;
+        }
+        if (unvisited != null)
+            moves.add(unvisited);
+        return moves;
+    }
+
+    /**
+     * Check whether a monster stands on a location.
+     * @param location the location
+     * @return         True if a monster is there
+     */
+    private boolean hasMonster(Location location) {
+        for (Monster monster : manager.getMonsters())
+            if (monster.getLocation().equals(location))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package game;
+import ch.aplu.jgamegrid.Location;
+
+import java.util.LinkedList;
+
+
+/**
+ * Autopilot interface representing any planner driving PacMan in auto mode.
+ * @see PacActor
+ * @see AsyncPlanner
+ * @see MonteCarloPlanner
+ */
+public interface Autopilot {
+    /**
+     * Interface method getting the moves PacMan should follow from now on; called once every time
+     * PacMan acts, right before it moves.
+     * @param location PacMan's location
+     * @param current  the moves PacMan currently follows
+     * @return         the moves to follow, of which the first is taken right away
+     */
+    LinkedList<Location> nextMoves(Location location, LinkedList<Location> current);
+}
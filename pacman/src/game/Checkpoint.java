@@ -0,0 +1,186 @@
+package game;
+import game.Game.STATUS;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Checkpoint class, a game saved to disk mid-play so it can be resumed later, in the windowed game or in a
+ * headless one: the hash of its level, its seed, the number of ticks played, and the game state, which holds
+ * every actor's location, direction, step size and random generator, the monsters' effect timers and
+ * type-specific state, the items still present, and the score.
+ * <p>
+ * Checkpoints are written as compressed binary files, in the game state's compact encoding, so a
+ * checkpoint of a level of a few hundred items takes a few hundred bytes.
+ * <p>
+ * Game states do not hold the moves PacMan had planned in auto mode, so an auto mode game resumed from a
+ * checkpoint plans its moves again from where it was saved.
+ * @see GameState
+ * @see Replay
+ */
+public final class Checkpoint {
+    // file format
+    private static final int MAGIC = 0x504D4350;
+    private static final int FORMAT_VERSION = 2;
+    public static final String EXTENSION = ".checkpoint";
+
+    // the game saved
+    private final long levelHash;
+    private final int seed;
+    private final int ticks;
+    private final GameState state;
+
+
+    /**
+     * Checkpoint constructor.
+     * @param levelHash the hash of the level's file
+     * @param seed      the game's seed
+     * @param ticks     the number of ticks played
+     * @param state     the game state
+     */
+    private Checkpoint(long levelHash, int seed, int ticks, GameState state) {
+        this.levelHash = levelHash;
+        this.seed      = seed;
+        this.ticks     = ticks;
+        this.state     = state;
+    }
+
+    /**
+     * Take a checkpoint of a game; the game must not be played while it is taken.
+     * @param manager the object manager of the game
+     * @param ticks   the number of ticks played
+     * @return        the checkpoint
+     * @throws IOException if the level's file cannot be read
+     */
+    public static Checkpoint of(ObjectManager manager, int ticks) throws IOException {
+        return new Checkpoint(Replay.hashLevel(manager.getLevelFile()), manager.getSeed(), ticks,
+                              GameState.of(manager, null));
+    }
+
+
+    /**
+     * Write the checkpoint to a file.
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(levelHash);
+            out.writeInt(seed);
+            out.writeInt(ticks);
+            state.write(out);
+        }
+    }
+
+    /**
+     * Read a checkpoint from a file.
+     * @param file the file
+     * @return     the checkpoint
+     * @throws IOException if the file cannot be read, or is not a checkpoint
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                throw new IOException("Not a checkpoint of this version: " + file);
+            long levelHash = in.readLong();
+            int seed       = in.readInt();
+            int ticks      = in.readInt();
+            return new Checkpoint(levelHash, seed, ticks, GameState.read(in));
+        }
+    }
+
+
+    /**
+     * Put a game back as it was when the checkpoint was taken; the game must not be played meanwhile.
+     * @param manager the object manager of the game, set up on the level the checkpoint was taken on
+     * @throws IOException if the level's file cannot be read
+     * @throws IllegalArgumentException if the checkpoint was taken on another level
+     */
+    public void restore(ObjectManager manager) throws IOException {
+        if (Replay.hashLevel(manager.getLevelFile()) != levelHash)
+            throw new IllegalArgumentException("Checkpoint was taken on another level than " +
+                                               manager.getLevelFile());
+        state.restore(manager);
+    }
+
+    /**
+     * Resume the game headlessly, on a new game instance of the level the checkpoint was taken on.
+     * @param level        the level template
+     * @param gameCallback the game callback of the instance
+     * @return             the game instance, with the ticks played before the checkpoint as its steps
+     * @throws IOException if the level's file cannot be read
+     * @throws IllegalArgumentException if the checkpoint was taken on another level
+     */
+    public GameInstance resume(LevelTemplate level, GameCallback gameCallback) throws IOException {
+        if (Replay.hashLevel(level.getXmlFile()) != levelHash)
+            throw new IllegalArgumentException("Checkpoint was taken on another level than " +
+                                               level.getXmlFile());
+        GameInstance game = new GameInstance(level, gameCallback);
+        game.restore(state, ticks);
+        return game;
+    }
+
+    /**
+     * Get the hash of the level's file.
+     * @return the hash
+     * @see   Replay#hashLevel(String)
+     */
+    public long getLevelHash() {
+        return levelHash;
+    }
+
+    /**
+     * Get the game's seed.
+     * @return the seed
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of ticks played before the checkpoint was taken.
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+
+    /**
+     * Play a level headlessly from the command line for a number of ticks and save a checkpoint of it, or
+     * resume a checkpoint and play it to the end.
+     * @param args <code> save {level} {properties} {ticks} {checkpoint} </code>, or
+     *             <code> resume {level} {properties} {checkpoint} {max ticks} </code>
+     */
+    public static void main(String[] args) throws Exception {
+        Properties properties = PropertiesLoader.loadPropertiesFile(args[2]);
+        if (args[0].equals("save")) {
+            LevelTemplate level = LevelTemplate.load(args[1], properties);
+            GameInstance game = new GameInstance(level, GameCallback.silent());
+            STATUS status = game.run(Integer.parseInt(args[3]));
+            Path file = Path.of(args[4]);
+            Checkpoint.of(game.getManager(), game.getSteps()).write(file);
+            System.out.printf("%s after %d ticks, score %d, saved in %d bytes%n", status, game.getSteps(),
+                              game.getScore(), Files.size(file));
+        } else {
+            Checkpoint checkpoint = read(Path.of(args[3]));
+            properties.setProperty(PropertiesLoader.SEED, String.valueOf(checkpoint.getSeed()));
+            LevelTemplate level = LevelTemplate.load(args[1], properties);
+            GameInstance game = checkpoint.resume(level, GameCallback.silent());
+            STATUS status = game.run(Integer.parseInt(args[4]));
+            System.out.printf("%s after %d ticks, resumed at tick %d, score %d%n", status, game.getSteps(),
+                              checkpoint.getTicks(), game.getScore());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package game;
+import game.utility.Metrics;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * CommandQueue class, the only way other threads change a running game. Any thread - the event dispatch
+ * thread handling the player's keys, or the game's own thread - posts commands to the queue without
+ * locking, and the simulation thread alone drains it, running the commands at a fixed point of every
+ * simulation cycle, between two ticks. Everything else the game does happens on the simulation thread, so
+ * the game state has a single writer, and ticks are played without holding any lock.
+ * <p>
+ * The queue is a non-blocking linked queue, so posting never waits on the simulation thread however long a
+ * tick takes; how long each command waited before it ran is recorded in the metrics.
+ * @see Game#actAll()
+ * @see ObjectManager#applyInput(int)
+ */
+public final class CommandQueue {
+    // the commands posted and not run yet, oldest first
+    private final ConcurrentLinkedQueue<Posted> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * A change to the game, run on the simulation thread.
+     */
+    @FunctionalInterface
+    public interface Command {
+        /**
+         * Run the command.
+         */
+        void run();
+    }
+
+    /**
+     * A command posted to the queue.
+     * @param command  the command
+     * @param postedAt when it was posted, in terms of <code> System.nanoTime() </code>
+     */
+    private record Posted(Command command, long postedAt) {}
+
+
+    /**
+     * Post a command, to be run by the simulation thread at the start of its next cycle. Can be called from
+     * any thread.
+     * @param command the command
+     */
+    public void post(Command command) {
+        queue.offer(new Posted(command, System.nanoTime()));
+    }
+
+    /**
+     * Run every command posted so far, in the order they were posted. Must only be called by the simulation
+     * thread.
+     * @return the number of commands run
+     */
+    public int drain() {
+        int count = 0;
+        for (Posted posted = queue.poll(); posted != null; posted = queue.poll()) {
+            Metrics.COMMAND_WAIT.recordSince(posted.postedAt());
+            posted.command().run();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Discard every command posted and not run yet; used when the game is reset.
+     */
+    public void clear() {
+        queue.clear();
+    }
+}
@@ -0,0 +1,241 @@
+package game;
+import game.Monster.MonsterType;
+
+import java.util.Arrays;
+
+
+/**
+ * DangerMap class predicting, for every cell, the earliest move at which any monster could be standing on it.
+ * The prediction is conservative: each monster is assumed to be able to take any move its type's movement
+ * rule allows, in 4 or 8 directions, blocked by walls or not, at its current step size. This covers the
+ * random monsters as well as those chasing PacMan or guarding gold, whatever they end up deciding.
+ * <p>
+ * Aliens are modelled as they actually move: a whole step at once to the cell that far away, which only
+ * needs to be within the grid and not a wall, so they jump over walls in between and never wrap around the
+ * grid's edges, and a single cell only when no such step is possible.
+ * <p>
+ * Monsters sharing the same movement rule and step size are expanded together with a single multi-source
+ * breadth-first search, bounded by the horizon, so the cost of an update depends on the area within reach
+ * of the monsters rather than on how many monsters there are.
+ * @see Monster
+ * @see SafetyPlanner
+ */
+public class DangerMap {
+    // value of cells no monster can reach within the horizon
+    public static final int SAFE = Integer.MAX_VALUE;
+
+    // the 8 directions, where the first 4 are the non-diagonal ones
+    private static final int[] MOVE_X = {1, 0, -1, 0, 1, -1, -1, 1};
+    private static final int[] MOVE_Y = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int NUM_DIAGONAL_MOVES = 8;
+
+    // the grid and the horizon, in number of moves
+    private final NavigationGrid grid;
+    private final int horizon;
+
+    // earliest arrival per cell, and the cells to reset on the next update
+    private final int[] danger;
+    private final int[] touched;
+    private int numTouched = 0;
+
+    // scratch arrays for the searches, where stamps avoid clearing the whole grid every update
+    private final int[] depths;
+    private final int[] stamps;
+    private final int[] queue;
+    private int stamp = 0;
+
+
+    /**
+     * Danger map constructor.
+     * @param grid    the navigation grid
+     * @param horizon the number of moves to predict
+     */
+    public DangerMap(NavigationGrid grid, int horizon) {
+        this.grid    = grid;
+        this.horizon = horizon;
+        this.danger  = new int[grid.getNumCells()];
+        this.touched = new int[grid.getNumCells()];
+        this.depths  = new int[grid.getNumCells()];
+        this.stamps  = new int[grid.getNumCells()];
+        this.queue   = new int[grid.getNumCells()];
+        Arrays.fill(danger, SAFE);
+    }
+
+    /**
+     * Get the horizon of the prediction.
+     * @return the number of moves predicted
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Get the earliest move at which a monster could be on a cell.
+     * @param cell the cell id
+     * @return     the number of moves, or <code> SAFE </code> if no monster can get there within the horizon
+     */
+    public int get(int cell) {
+        return danger[cell];
+    }
+
+
+    /**
+     * Update the prediction from the monsters' cells and step sizes.
+     * @param snapshot the world snapshot
+     * @see   WorldSnapshot
+     */
+    public void update(WorldSnapshot snapshot) {
+        for (int i = 0; i < numTouched; i++)
+            danger[touched[i]] = SAFE;
+        numTouched = 0;
+
+        // one search per group of monsters moving alike
+        int numMonsters = snapshot.getNumMonsters();
+        boolean[] expanded = new boolean[numMonsters];
+        for (int i = 0; i < numMonsters; i++) {
+            if (expanded[i]) continue;
+            MonsterType type = snapshot.getMonsterType(i);
+            int stepSize = snapshot.getMonsterStepSize(i);
+
+            // gather the group's cells as the search's sources
+            stamp++;
+            int tail = 0;
+            for (int j = i; j < numMonsters; j++) {
+                MonsterType otherType = snapshot.getMonsterType(j);
+                if (expanded[j] || otherType.movesDiagonally != type.movesDiagonally ||
+                    otherType.passesWalls != type.passesWalls || jumps(otherType) != jumps(type) ||
+                    snapshot.getMonsterStepSize(j) != stepSize)
+                    continue;
+                expanded[j] = true;
+                int cell = snapshot.getMonsterCell(j);
+                if (cell == NavigationGrid.NONE || stamps[cell] == stamp) continue;
+                stamps[cell] = stamp;
+                depths[cell] = 0;
+                queue[tail++] = cell;
+                mark(cell, 0);
+            }
+            if (jumps(type))
+                expandJumps(tail, stepSize);
+            else
+                expand(tail, type, stepSize);
+        }
+    }
+
+    /**
+     * Check whether a monster type moves by jumping its whole step at once, as aliens do.
+     * @param type the monster type
+     * @return     True if it jumps, False if it walks cell by cell
+     * @see        Alien
+     */
+    private static boolean jumps(MonsterType type) {
+        return type == MonsterType.Alien;
+    }
+
+    /**
+     * Breadth-first search from the sources already in the queue, marking each cell with the number of
+     * moves needed to get there.
+     * @param tail     the number of sources in the queue
+     * @param type     the monster type, for its movement rule
+     * @param stepSize the number of cells per move
+     */
+    private void expand(int tail, MonsterType type, int stepSize) {
+        int maxDepth = horizon * stepSize;
+        int numMoves = type.movesDiagonally ? NUM_DIAGONAL_MOVES : NavigationGrid.NUM_MOVES;
+        int head = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int depth = depths[cell];
+            if (depth >= maxDepth) continue;
+            for (int move = 0; move < numMoves; move++) {
+                int next = neighbour(cell, move, type);
+                if (next == NavigationGrid.NONE || stamps[next] == stamp) continue;
+                stamps[next] = stamp;
+                depths[next] = depth + 1;
+                queue[tail++] = next;
+                mark(next, (depth + stepSize) / stepSize);
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search from the sources already in the queue for monsters jumping their whole step at
+     * once, marking each cell with the number of moves needed to get there. A move lands the step size
+     * away in any of the 8 directions, on a cell within the grid that is not a wall; a single cell away
+     * only if no such landing exists, as the monster then falls back to its normal step size.
+     * @param tail     the number of sources in the queue
+     * @param stepSize the number of cells per move
+     * @see   Alien
+     */
+    private void expandJumps(int tail, int stepSize) {
+        int head = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int depth = depths[cell];
+            if (depth >= horizon) continue;
+            boolean landed = false;
+            int size = stepSize;
+            while (true) {
+                for (int move = 0; move < NUM_DIAGONAL_MOVES; move++) {
+                    int next = jump(cell, move, size);
+                    if (next == NavigationGrid.NONE) continue;
+                    landed = true;
+                    if (stamps[next] == stamp) continue;
+                    stamps[next] = stamp;
+                    depths[next] = depth + 1;
+                    queue[tail++] = next;
+                    mark(next, depth + 1);
+                }
+                if (landed || size == LiveActor.NORMAL_STEP_SIZE)
+                    break;
+                size = LiveActor.NORMAL_STEP_SIZE;
+            }
+        }
+    }
+
+    /**
+     * Get the landing cell of a jump.
+     * @param cell the cell id
+     * @param move the move index, in 8 directions
+     * @param size the number of cells jumped
+     * @return     the landing cell id, or <code> NONE </code> if it is off the grid or a wall
+     */
+    private int jump(int cell, int move, int size) {
+        int width = grid.getWidth();
+        int x = cell % width + MOVE_X[move] * size;
+        int y = cell / width + MOVE_Y[move] * size;
+        if (! grid.inBound(x, y))
+            return NavigationGrid.NONE;
+        int next = y * width + x;
+        return grid.isWall(next) ? NavigationGrid.NONE : next;
+    }
+
+    /**
+     * Get a monster's destination of a move. Monsters bound by walls take the same moves as PacMan,
+     * portals included, while the others step to the adjacent cell regardless.
+     * @param cell the cell id
+     * @param move the move index, in 8 directions
+     * @param type the monster type
+     * @return     the destination cell id, or <code> NONE </code> if blocked
+     */
+    private int neighbour(int cell, int move, MonsterType type) {
+        if (! type.passesWalls && move < NavigationGrid.NUM_MOVES)
+            return grid.neighbour(cell, move);
+        int width  = grid.getWidth();
+        int height = grid.getHeight();
+        int x = ((cell % width + MOVE_X[move]) % width  + width)  % width;
+        int y = ((cell / width + MOVE_Y[move]) % height + height) % height;
+        int next = y * width + x;
+        return (! type.passesWalls && grid.isWall(next)) ? NavigationGrid.NONE : next;
+    }
+
+    /**
+     * Lower the danger of a cell to the given number of moves.
+     * @param cell  the cell id
+     * @param moves the number of moves
+     */
+    private void mark(int cell, int moves) {
+        if (danger[cell] == SAFE)
+            touched[numTouched++] = cell;
+        danger[cell] = Math.min(danger[cell], moves);
+    }
+}
@@ -1,10 +1,20 @@
 package game;
 import game.utility.GameCallback;
+import game.utility.GameEvents;
+import game.utility.Metrics;
+import game.utility.PropertiesLoader;
 
 import ch.aplu.jgamegrid.*;
 import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -18,6 +28,9 @@ import java.util.Properties;
  * @author Jonathan Chen Jie Kong    - 1263651 (jonathanchen@student.unimelb.edu.au)
  */
 public class Game extends GameGrid implements Runnable {
+    @Serial
+    private static final long serialVersionUID = -2771863453195487260L;
+
     // draw grid colors
     private final static Color COLOR_LOSE = Color.red;
     private final static Color COLOR_WIN = Color.yellow;
@@ -26,11 +39,12 @@ public class Game extends GameGrid implements Runnable {
     protected final static Color COLOR_SPACE = Color.lightGray;
 
     // win/lose messages
-    private final static String LOSE_MESSAGE = "GAME OVER";
-    private final static String WIN_MESSAGE = "YOU WIN";
+    protected final static String LOSE_MESSAGE = "GAME OVER";
+    protected final static String WIN_MESSAGE = "YOU WIN";
 
     // game running constants
-    private final static int SIMULATION_PERIOD = 100;
+    protected final static int SIMULATION_PERIOD = 100;
+    private final static int TICKS_PER_FRAME = 64;
     private final static int KEY_REPEATED_PERIOD = 150;
     private final static String GAME_TITLE = "[PacMan in the TorusVerse]";
     public final static String RUN_TITLE = "[PacMan in the TorusVerse] Current score: ";
@@ -50,6 +64,23 @@ public class Game extends GameGrid implements Runnable {
     private final Properties properties;
     private final Dimension dimension;
     private STATUS status;
+    // ticks played, whether the game was resumed from a checkpoint, and whether it is over; only changed by
+    // the simulation thread once the game runs
+    private int ticks = 0;
+    private boolean resumed = false;
+    private volatile boolean over = false;
+    // fast-forward - the ticks played per normal tick (0 if uncapped), the ticks between two frames drawn
+    // when uncapped (0 if only on request), whether it is on, and the speed accumulated towards a tick
+    private final int fastSpeed;
+    private final int ticksPerFrame;
+    private boolean fastForward = false;
+    private int speedCredit = 0;
+    private volatile boolean frameRequested = false;
+    // when the inputs applied since the last frame drawn were received, in terms of System.nanoTime()
+    private long[] inputsShown = new long[4];
+    // the input latency histograms as they were when the game started, to report this game's inputs only
+    private Metrics.Histogram[] inputsAtStart = null;
+    private int numInputsShown = 0;
 
 
     /**
@@ -76,9 +107,16 @@ public class Game extends GameGrid implements Runnable {
     public Game(Dimension dimension, Properties properties, GameCallback gameCallback) {
         // Setup game
         super(dimension.width, dimension.height, CELL_SIZE, false);
-        this.manager    = new ObjectManager(this, gameCallback);
-        this.properties = properties;
-        this.dimension  = dimension;
+        this.manager       = new ObjectManager(this, gameCallback);
+        this.properties    = properties;
+        this.dimension     = dimension;
+        String speed       = properties.getProperty(PropertiesLoader.SIMULATION_SPEED, "").strip();
+        Integer fastSpeed  = (speed.isEmpty() || speed.equals(PropertiesLoader.UNCAPPED)) ? null :
+                             parseSetting(speed);
+        Integer frameTicks = parseSetting(properties.getProperty(PropertiesLoader.SIMULATION_FRAME_TICKS,
+                                          String.valueOf(TICKS_PER_FRAME)).strip());
+        this.fastSpeed     = (fastSpeed == null) ? 0 : Math.max(1, fastSpeed);
+        this.ticksPerFrame = (frameTicks == null) ? TICKS_PER_FRAME : frameTicks;
 
         // set up game window
         setSimulationPeriod(SIMULATION_PERIOD);
@@ -87,6 +125,20 @@ public class Game extends GameGrid implements Runnable {
         setKeyRepeatPeriod(KEY_REPEATED_PERIOD);
     }
 
+    /**
+     * Parse a whole number setting of the properties.
+     * @param value the setting's value
+     * @return      the setting, or null if it is not a whole number, for the default to be used instead
+     */
+    private static Integer parseSetting(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
 
     /**
      * Reset the game's state by re-putting actors and re-setting up the game settings
@@ -94,8 +146,16 @@ public class Game extends GameGrid implements Runnable {
      * for another play.
      */
     public void reset(String xmlFile) {
+        long start = System.nanoTime();
+        GameEvents.GameReset event = new GameEvents.GameReset();
+        event.begin();
         // remove all actors
-        status = STATUS.NA;
+        status         = STATUS.NA;
+        ticks          = 0;
+        resumed        = false;
+        over           = false;
+        speedCredit    = 0;
+        numInputsShown = 0;
         manager.removeAll();
         setTitle(GAME_TITLE);
 
@@ -108,6 +168,105 @@ public class Game extends GameGrid implements Runnable {
         putInanimateObjects();
         putLiveActors();
         manager.setMonstersStopMoving();
+        Metrics.LEVEL_LOAD.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = xmlFile;
+            event.seed  = manager.getSeed();
+            event.commit();
+        }
+    }
+
+    /**
+     * Play a simulation cycle; called by the simulation thread every simulation period. Overridden so the
+     * game plays its own ticks, each one act of every live actor, instead of the game grid acting every
+     * actor and drawing a frame each cycle. At normal speed a tick is played every <code> SLOW_DOWN </code>
+     * cycles and a frame is drawn every cycle, as the game grid did; fast-forwarded, as many ticks are
+     * played per cycle as the speed asks for, or a tick per cycle with no delay between cycles when the
+     * speed is uncapped, and frames are only drawn every so many ticks. Only how many ticks a cycle plays
+     * changes with the speed, not what a tick does.
+     * <p>
+     * Every cycle starts by running the commands other threads have posted, such as the player's inputs,
+     * so they always fall between two ticks; the game is only ever changed by the simulation thread.
+     * @see #setFastForward(boolean)
+     * @see CommandQueue
+     */
+    @Override
+    public void actAll() {
+        manager.getCommands().drain();
+        boolean draw = true;
+        if (! fastForward)
+            speedCredit++;
+        else if (fastSpeed > 0)
+            speedCredit += fastSpeed;
+        else {
+            speedCredit = LiveActor.SLOW_DOWN;
+            draw = ticksPerFrame > 0 && ticks % ticksPerFrame == ticksPerFrame - 1;
+        }
+        for (; speedCredit >= LiveActor.SLOW_DOWN; speedCredit -= LiveActor.SLOW_DOWN)
+            tick();
+        if (draw || frameRequested || over) {
+            frameRequested = false;
+            refresh();
+            for (int i = 0; i < numInputsShown; i++)
+                Metrics.INPUT_FRAME.recordSince(inputsShown[i]);
+            numInputsShown = 0;
+        }
+    }
+
+    /**
+     * Play a single tick of the game, unless it is already over: act every live actor once, and end the
+     * game if PacMan has collided with a monster or eaten every pill and gold piece, as a headless game
+     * instance does every step. Records how long the tick takes, in the metrics and as a flight recorder
+     * event, and tells the replay recorder and the hash stream of its end.
+     * @see GameInstance#step()
+     */
+    private void tick() {
+        if (over)
+            return;
+        long start = System.nanoTime();
+        GameEvents.Tick event = new GameEvents.Tick();
+        event.begin();
+        endIf(manager.actLiveActors());
+        manager.endTick();
+        ticks++;
+        Metrics.TICK.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = manager.getLevelFile();
+            event.seed  = manager.getSeed();
+            event.commit();
+        }
+    }
+
+    /**
+     * Apply an input of the player, posted by the key listener of PacMan, unless the game is over; ends the
+     * game if PacMan has collided with a monster or eaten every pill and gold piece, as a headless game
+     * instance does on an input. How long the input took to be applied is recorded, and how long it takes
+     * to be shown is once the next frame is drawn.
+     * @param direction  the direction PacMan is turned to, in degrees
+     * @param receivedAt when the key was received, in terms of <code> System.nanoTime() </code>
+     * @see   GameInstance#input(int)
+     */
+    protected void input(int direction, long receivedAt) {
+        if (over)
+            return;
+        Metrics.INPUT_APPLY.recordSince(receivedAt);
+        endIf(manager.applyInput(direction));
+        if (numInputsShown == inputsShown.length)
+            inputsShown = Arrays.copyOf(inputsShown, 2 * numInputsShown);
+        inputsShown[numInputsShown++] = receivedAt;
+    }
+
+    /**
+     * End the game if PacMan has collided with a monster or eaten every pill and gold piece, stopping the
+     * monsters; the simulation thread keeps running, but plays no more ticks.
+     * @param hit whether PacMan has collided with a monster
+     */
+    private void endIf(boolean hit) {
+        over = hit || manager.getNumMandatoryItems() <= 0;
+        if (over)
+            manager.setMonstersStopMoving();
     }
 
     /**
@@ -117,6 +276,11 @@ public class Game extends GameGrid implements Runnable {
     public void run() {
         if (!start) return;
         manager.setMonstersStartMoving();
+        inputsAtStart = new Metrics.Histogram[] {
+                Metrics.INPUT_DISPATCH.snapshot(), Metrics.INPUT_APPLY.snapshot(), Metrics.INPUT_FRAME.snapshot()
+        };
+        resumeCheckpoint();
+        startRecording();
 
         // Run the game
         doRun();
@@ -125,12 +289,25 @@ public class Game extends GameGrid implements Runnable {
         // run the game until win / lose condition satisfies
         PacActor pacActor = manager.getPacActor();
         addKeyListener(pacActor);
-        boolean hasPacmanEatAllPills, hasPacmanBeenHit;
-        do {
-            hasPacmanBeenHit     = pacActor.collideMonster();
-            hasPacmanEatAllPills = manager.getNumMandatoryItems() <= 0;
+        addKeyListener(new GGKeyListener() {
+            @Override
+            public boolean keyPressed(KeyEvent keyEvent) {
+                switch (keyEvent.getKeyCode()) {
+                    case KeyEvent.VK_S -> manager.getCommands().post(Game.this::saveCheckpoint);
+                    case KeyEvent.VK_F -> manager.getCommands().post(() -> setFastForward(! fastForward));
+                    case KeyEvent.VK_R -> frameRequested = true;
+                    default -> { return false; }
+                }
+                return true;
+            }
+            @Override
+            public boolean keyReleased(KeyEvent keyEvent) {
+                return false;
+            }
+        });
+        while (! over)
             delay(DELAY_RUN);
-        } while (! hasPacmanBeenHit && ! hasPacmanEatAllPills);
+        boolean hasPacmanBeenHit = pacActor.collideMonster();
         delay(DELAY_AFTER_RUN);
 
         // upon game over
@@ -149,6 +326,124 @@ public class Game extends GameGrid implements Runnable {
             status = STATUS.WIN;
         }
         doPause();
+        saveRecording();
+        reportInputLatency();
+    }
+
+
+    /**
+     * Log how long the player's inputs took to be received, applied and shown during this game, if any were
+     * made; the histograms of every game so far can be read at any time through the metrics.
+     * @see Metrics
+     */
+    private void reportInputLatency() {
+        if (inputsAtStart == null)
+            return;
+        Metrics.Histogram apply = Metrics.INPUT_APPLY.since(inputsAtStart[1]);
+        if (apply.getCount() == 0)
+            return;
+        GameCallback gameCallback = manager.getGameCallback();
+        gameCallback.writeString(Metrics.INPUT_DISPATCH.since(inputsAtStart[0]).summarize());
+        gameCallback.writeString(apply.summarize());
+        gameCallback.writeString(Metrics.INPUT_FRAME.since(inputsAtStart[2]).summarize());
+    }
+
+    /**
+     * Turn fast-forward on or off; called on the simulation thread, the only one reading it, through the
+     * command queue when the player presses F. Fast-forwarded, the game plays at the speed the properties
+     * give, as a multiple of the normal speed, or as fast as it can if they give none, drawing a frame every
+     * so many ticks or when the player presses R.
+     * @param fastForward true to fast-forward, false to play at normal speed
+     * @see   #actAll()
+     */
+    public void setFastForward(boolean fastForward) {
+        this.fastForward = fastForward;
+        setSimulationPeriod((fastForward && fastSpeed == 0) ? 0 : SIMULATION_PERIOD);
+        frameRequested = true;
+    }
+
+    /**
+     * Resume the game from its checkpoint file, if the properties give one and it exists; the game must be
+     * reset on the level the checkpoint was taken on.
+     * @see Checkpoint
+     */
+    private void resumeCheckpoint() {
+        String file = properties.getProperty(PropertiesLoader.CHECKPOINT_FILE);
+        if (file == null || file.isBlank() || ! Files.exists(Path.of(file.strip())))
+            return;
+        try {
+            Checkpoint checkpoint = Checkpoint.read(Path.of(file.strip()));
+            checkpoint.restore(manager);
+            ticks   = checkpoint.getTicks();
+            resumed = true;
+        } catch (IOException | IllegalArgumentException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Save the game to its checkpoint file, if the properties give one; posted as a command when the player
+     * presses S, so the checkpoint is taken by the simulation thread between two ticks. The file is written
+     * on another thread, so the game does not wait for it.
+     * @see Checkpoint
+     */
+    private void saveCheckpoint() {
+        String file = properties.getProperty(PropertiesLoader.CHECKPOINT_FILE);
+        if (file == null || file.isBlank() || over)
+            return;
+        try {
+            Checkpoint checkpoint = Checkpoint.of(manager, ticks);
+            CompletableFuture.runAsync(() -> {
+                try {
+                    checkpoint.write(Path.of(file.strip()));
+                } catch (IOException exception) {
+                    exception.printStackTrace();
+                }
+            });
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Start recording the game, if the properties give a directory to save replays to. Games resumed from
+     * a checkpoint are not recorded, as a replay is always played from the start of its level.
+     * @see ReplayRecorder
+     */
+    private void startRecording() {
+        manager.rehash();
+        if (resumed)
+            return;
+        String directory = properties.getProperty(PropertiesLoader.REPLAY_DIRECTORY);
+        if (directory == null || directory.isBlank())
+            return;
+        int interval = Integer.parseInt(properties.getProperty(PropertiesLoader.REPLAY_INTERVAL,
+                String.valueOf(ReplayRecorder.DEFAULT_SNAPSHOT_INTERVAL)).strip());
+        try {
+            manager.setReplayRecorder(new ReplayRecorder(manager, manager.getLevelFile(), interval));
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Save the replay of the game, if recorded, as <code> {level}.replay </code> in the replays' directory.
+     * The game is over by then, so the simulation thread no longer changes the recording.
+     * @see Replay
+     */
+    private void saveRecording() {
+        ReplayRecorder recorder = manager.getReplayRecorder();
+        if (recorder == null)
+            return;
+        Replay replay = recorder.toReplay();
+        manager.setReplayRecorder(null);
+        try {
+            Path directory = Files.createDirectories(
+                    Path.of(properties.getProperty(PropertiesLoader.REPLAY_DIRECTORY).strip()));
+            replay.write(directory.resolve(Path.of(manager.getLevelFile()).getFileName() + Replay.EXTENSION));
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
     }
 
 
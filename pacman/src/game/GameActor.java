@@ -1,24 +1,41 @@
 package game;
+import game.utility.SpriteCache;
+
 import ch.aplu.jgamegrid.Actor;
+import ch.aplu.jgamegrid.Location;
+import java.awt.image.BufferedImage;
+import java.util.function.Supplier;
 
 
 /**
  * Game Actor abstract class extended from Actor class. It represents any actors in the game, live
  * or inanimate. As long as it is an element within the game's grid, it is considered, or can be
  * extended.
+ * <p>
+ * Game actors can also live outside any game grid, as they do in simulations of the game. Such detached
+ * actors keep their own location, and are constructed without loading their sprites, so that simulations
+ * need no display at all.
+ * <p>
+ * Sprites are taken from the sprite cache, so actors of a type share their decoded sprite images.
  * @see GameActor
  */
 public abstract class GameActor extends Actor {
+    // whether actors constructed on the current thread load their sprites
+    private static final ThreadLocal<Boolean> LOAD_SPRITES = ThreadLocal.withInitial(() -> true);
+
     // object's name
     private String name;
 
+    // location of the actor while it is not part of any game grid
+    private Location detachedLocation = null;
+
     /**
      * The game actor's constructor. Calls the constructor of Actor class. This constructor is for actors
      * who only have a single display for their sprites.
      * @param src the directory for sprite image of the inanimate object
      */
     public GameActor(String src) {
-        super(src);
+        super(LOAD_SPRITES.get() ? SpriteCache.getImages(src, 1) : new BufferedImage[0]);
     }
 
     /**
@@ -29,7 +46,33 @@ public abstract class GameActor extends Actor {
      * @param numSprites  number of sprite images
      */
     public GameActor(boolean isRotatable, String directory, int numSprites) {
-        super(isRotatable, directory, numSprites);
+        super(isRotatable, LOAD_SPRITES.get() ? SpriteCache.getImages(directory, numSprites)
+                                              : new BufferedImage[0]);
+    }
+
+    /**
+     * Another game actor's constructor, for actors that are never displayed by the game grid as sprites of
+     * their own, but drawn into the grid's background instead.
+     */
+    public GameActor() {
+        super();
+    }
+
+    /**
+     * Construct actors without loading their sprites, for actors that will never be displayed. Calls may be
+     * nested; sprite loading is put back as it was before the call.
+     * @param constructor the construction of the actors
+     * @return            the result of the construction
+     * @param <T>         the type of the result
+     */
+    public static <T> T withoutSprites(Supplier<T> constructor) {
+        boolean loadSprites = LOAD_SPRITES.get();
+        LOAD_SPRITES.set(false);
+        try {
+            return constructor.get();
+        } finally {
+            LOAD_SPRITES.set(loadSprites);
+        }
     }
 
     /**
@@ -48,6 +91,63 @@ public abstract class GameActor extends Actor {
         this.name = name;
     }
 
+    /**
+     * Check whether the actor is part of a game grid.
+     * @return True if detached from any game grid
+     */
+    public boolean isDetached() {
+        return gameGrid == null;
+    }
+
+
+    /**
+     * Check whether the actor has been put anywhere yet, either into a game grid, or at a location of its
+     * own while detached.
+     * @return True if the actor has a location
+     */
+    public boolean hasLocation() {
+        return ! isDetached() || detachedLocation != null;
+    }
+
+    /**
+     * Set the actor's location. A detached actor keeps the location itself.
+     * @param location the location
+     */
+    @Override
+    public void setLocation(Location location) {
+        if (isDetached())
+            detachedLocation = location.clone();
+        else
+            super.setLocation(location);
+    }
+
+    /**
+     * Get the actor's location.
+     * @return the location
+     */
+    @Override
+    public Location getLocation() {
+        return (isDetached() && detachedLocation != null) ? detachedLocation.clone() : super.getLocation();
+    }
+
+    /**
+     * Get the actor's horizontal coordinate.
+     * @return the x coordinate
+     */
+    @Override
+    public int getX() {
+        return (isDetached() && detachedLocation != null) ? detachedLocation.getX() : super.getX();
+    }
+
+    /**
+     * Get the actor's vertical coordinate.
+     * @return the y coordinate
+     */
+    @Override
+    public int getY() {
+        return (isDetached() && detachedLocation != null) ? detachedLocation.getY() : super.getY();
+    }
+
 
     /**
      * Check whether 2 actors within a game have collided with each other or not. This can be used
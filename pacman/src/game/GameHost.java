@@ -0,0 +1,170 @@
+package game;
+import game.Game.STATUS;
+import game.utility.GameCallback;
+import game.utility.Metrics;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+
+/**
+ * GameHost class running many headless games side by side in one program, for evaluating levels and
+ * autopilots at scale. Games are not given a thread each; instead, a fixed pool of threads, one per core
+ * by default, plays every game submitted a slice of steps at a time, putting it back at the end of the
+ * queue after each slice. Thousands of games thus share the cores fairly, and a game waiting in the queue
+ * costs only its own items and actors, the level itself being shared through its template.
+ * <p>
+ * A game only ever runs on one thread at a time, and games share nothing but their level templates, so
+ * their results are the same as when played alone.
+ * @see GameInstance
+ * @see LevelTemplate
+ */
+public class GameHost implements AutoCloseable {
+    // number of steps a game plays before giving way to the others
+    private static final int SLICE_STEPS = 64;
+
+    // slices waiting to be played, over every host
+    private static final AtomicLong QUEUED = new AtomicLong();
+    private static final Metrics.Gauge QUEUE_DEPTH = Metrics.gauge(
+            "pacman_host_queue_depth", "Slices of hosted games waiting for a thread.", QUEUED::get);
+
+    // threads playing the games
+    private final ExecutorService scheduler;
+
+    /**
+     * The result of a hosted game.
+     * @param status the game's status; neither won nor lost if the game ran out of steps
+     * @param score  PacMan's score
+     * @param steps  the number of steps played
+     */
+    public record Result(STATUS status, int score, int steps) {}
+
+    /**
+     * A slice of a game waiting for a thread, which fails the game's result if it throws.
+     * @param slice  the slice
+     * @param result the game's result
+     */
+    private record QueuedSlice(Runnable slice, CompletableFuture<Result> result) implements Runnable {
+        @Override
+        public void run() {
+            QUEUED.decrementAndGet();
+            try {
+                slice.run();
+            } catch (RuntimeException | Error exception) {
+                result.completeExceptionally(exception);
+            }
+        }
+    }
+
+
+    /**
+     * Game host constructor, with a thread for each core.
+     */
+    public GameHost() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Game host constructor.
+     * @param numThreads the number of threads playing the games
+     */
+    public GameHost(int numThreads) {
+        this.scheduler = Executors.newFixedThreadPool(
+                numThreads,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "GameHost");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+
+    /**
+     * Submit a game to be played, which will be played until it is over or has run out of steps.
+     * @param level        the level template
+     * @param gameCallback the game callback of the game; it is only ever used by the game's thread
+     * @param maxSteps     the maximum number of steps
+     * @return             the game's result, once played; completed exceptionally if the game failed
+     */
+    public CompletableFuture<Result> submit(LevelTemplate level, GameCallback gameCallback, int maxSteps) {
+        return submit(level, () -> gameCallback, maxSteps);
+    }
+
+    /**
+     * Submit a game to be played, with a game callback which logs nothing.
+     * @param level    the level template
+     * @param maxSteps the maximum number of steps
+     * @return         the game's result, once played
+     */
+    public CompletableFuture<Result> submit(LevelTemplate level, int maxSteps) {
+        return submit(level, GameCallback.silent(), maxSteps);
+    }
+
+    /**
+     * Submit a game to be played with a game callback made for it; for callbacks which must only be made
+     * once the game is about to be played, such as ones opening a file.
+     * @param level    the level template
+     * @param callback the maker of the game callback
+     * @param maxSteps the maximum number of steps
+     * @return         the game's result, once played
+     */
+    public CompletableFuture<Result> submit(LevelTemplate level, Supplier<GameCallback> callback, int maxSteps) {
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        queue(() -> play(new GameInstance(level, callback.get()), maxSteps, result), result);
+        return result;
+    }
+
+    /**
+     * Play a slice of a game, then either complete its result or queue its next slice.
+     * @param game     the game
+     * @param maxSteps the maximum number of steps
+     * @param result   the game's result
+     */
+    private void play(GameInstance game, int maxSteps, CompletableFuture<Result> result) {
+        STATUS status = game.run(Math.min(maxSteps, game.getSteps() + SLICE_STEPS));
+        if (status != STATUS.NA || game.getSteps() >= maxSteps) {
+            result.complete(new Result(status, game.getScore(), game.getSteps()));
+            return;
+        }
+        queue(() -> play(game, maxSteps, result), result);
+    }
+
+    /**
+     * Queue a slice of a game, which fails the game's result if it throws.
+     * @param slice  the slice
+     * @param result the game's result
+     */
+    private void queue(Runnable slice, CompletableFuture<Result> result) {
+        QUEUED.incrementAndGet();
+        try {
+            scheduler.execute(new QueuedSlice(slice, result));
+        } catch (RuntimeException exception) {
+            QUEUED.decrementAndGet();
+            result.completeExceptionally(exception);
+        }
+    }
+
+
+    /**
+     * Stop the host. Games being played stop after their current slice, failing their results, and the
+     * results of games still waiting are cancelled, so nothing waiting on a result is left hanging.
+     */
+    @Override
+    public void close() {
+        for (Runnable waiting : scheduler.shutdownNow())
+            if (waiting instanceof QueuedSlice queued) {
+                QUEUED.decrementAndGet();
+                queued.result().completeExceptionally(new CancellationException("Game host closed"));
+            }
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
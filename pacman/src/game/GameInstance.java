@@ -0,0 +1,159 @@
+package game;
+import game.Game.STATUS;
+import game.utility.GameCallback;
+import game.utility.GameEvents;
+import game.utility.Metrics;
+
+import ch.aplu.jgamegrid.Location;
+
+
+/**
+ * GameInstance class, a single headless game of a level template, played without any game grid or window.
+ * Every step is one act of each live actor, the monsters first and PacMan last, as they act once per
+ * tick of the windowed game; collisions and the winning condition are checked the same way as in
+ * <code> Game.actAll() </code>, and the end of the game is written to the instance's own game callback.
+ * <p>
+ * An instance is not thread-safe, but nothing in it is shared with other instances except what the level
+ * template holds, so any number of instances can be stepped on different threads at the same time.
+ * @see LevelTemplate
+ * @see GameHost
+ * @see Game
+ */
+public class GameInstance {
+    // the instance's own level
+    private final ObjectManager manager;
+    private final PacActor pacActor;
+
+    // the game's progress
+    private STATUS status = STATUS.NA;
+    private int steps = 0;
+
+
+    /**
+     * Game instance constructor. Puts every live actor at its initial location and starts the monsters,
+     * as resetting and running the windowed game does.
+     * @param level        the level template
+     * @param gameCallback the game callback of the instance
+     */
+    public GameInstance(LevelTemplate level, GameCallback gameCallback) {
+        this.manager  = new ObjectManager(level, gameCallback);
+        this.pacActor = manager.getPacActor();
+        manager.parseProperties(level.getProperties());
+        for (Monster monster : manager.getMonsters()) {
+            monster.setLocation(monster.getInitLocation());
+            monster.setDirection(Location.NORTH);
+        }
+        if (pacActor.getInitLocation() != null)
+            pacActor.setLocation(pacActor.getInitLocation());
+        manager.setMonstersStartMoving();
+        manager.rehash();
+    }
+
+
+    /**
+     * Play a single step of the game, unless it is already over.
+     * @return the game's status after the step
+     */
+    public STATUS step() {
+        if (status != STATUS.NA)
+            return status;
+        long start = System.nanoTime();
+        GameEvents.Tick event = new GameEvents.Tick();
+        event.begin();
+        steps++;
+        if (manager.actLiveActors())
+            end(STATUS.LOSE, Game.LOSE_MESSAGE);
+        else if (manager.getNumMandatoryItems() <= 0)
+            end(STATUS.WIN, Game.WIN_MESSAGE);
+        manager.endTick();
+        Metrics.TICK.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = manager.getLevelFile();
+            event.seed  = manager.getSeed();
+            event.commit();
+        }
+        return status;
+    }
+
+    /**
+     * Apply an input of the player before the next step, turning PacMan and taking a step that way if it
+     * can, as a key press does in the windowed game; the input is recorded if the game is.
+     * @param direction the direction, in degrees
+     */
+    public void input(int direction) {
+        if (status != STATUS.NA)
+            return;
+        if (manager.applyInput(direction))
+            end(STATUS.LOSE, Game.LOSE_MESSAGE);
+        else if (manager.getNumMandatoryItems() <= 0)
+            end(STATUS.WIN, Game.WIN_MESSAGE);
+    }
+
+    /**
+     * Put the game back into a state taken after a number of steps; the game is taken to be still going.
+     * @param state the game state
+     * @param steps the number of steps played before the state was taken
+     * @see   GameState
+     */
+    protected void restore(GameState state, int steps) {
+        state.restore(manager);
+        this.steps  = steps;
+        this.status = STATUS.NA;
+    }
+
+    /**
+     * Play the game until it is over, or until a number of steps have been played in total.
+     * @param maxSteps the maximum number of steps in total
+     * @return         the game's status
+     */
+    public STATUS run(int maxSteps) {
+        while (status == STATUS.NA && steps < maxSteps)
+            step();
+        return status;
+    }
+
+    /**
+     * End the game, stopping the monsters and logging the result.
+     * @param result  the result
+     * @param message the message logged
+     */
+    private void end(STATUS result, String message) {
+        status = result;
+        manager.setMonstersStopMoving();
+        manager.getGameCallback().endOfGame(message);
+    }
+
+
+    /**
+     * Get the game's status - whether the player has won, lost, or neither yet.
+     * @return the game's status
+     */
+    public STATUS getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the number of steps played.
+     * @return the number of steps
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get PacMan's score.
+     * @return the score
+     */
+    public int getScore() {
+        return pacActor.getScore();
+    }
+
+    /**
+     * Get the instance's object manager.
+     * @return the object manager
+     */
+    protected ObjectManager getManager() {
+        return manager;
+    }
+}
@@ -0,0 +1,115 @@
+package game;
+
+import java.io.Serial;
+import java.util.Random;
+
+
+/**
+ * GameRandom class, a drop-in replacement for <code> Random </code> whose state can be read and set. It
+ * implements SplitMix64, the generator behind <code> SplittableRandom </code>: the state is a single 64-bit
+ * counter, advanced by a fixed odd gamma on every draw and mixed into the value drawn, so a draw is a few
+ * arithmetic operations with no atomic update, and the state can be saved into a game state and restored
+ * later, which is what allows a game to be rewound or simulated ahead.
+ * <p>
+ * Every live actor draws from its own stream, derived from the level's seed and the actor's index, so
+ * actors of the same type do not make the same random choices, and a game plays the same whichever thread
+ * each actor's choices are made on, or in which order.
+ * <p>
+ * Every method of <code> Random </code> goes through <code> next(int) </code> or <code> nextLong() </code>
+ * except for the cached second value of <code> nextGaussian() </code>, which the game never uses.
+ * @see GameState
+ * @see LiveActor
+ */
+public class GameRandom extends Random {
+    @Serial
+    private static final long serialVersionUID = 4205390916842279311L;
+
+    // the generator's constant, as in SplittableRandom: the odd gamma the state advances by on every draw
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // the generator's state; set by the constructor of Random through setSeed
+    private long state;
+
+
+    /**
+     * Game random constructor.
+     * @param seed the initial seed
+     */
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Game random constructor, for one of the independent streams of a seed.
+     * @param seed   the seed
+     * @param stream the stream's index
+     */
+    public GameRandom(long seed, int stream) {
+        super(seed);
+        setSeed(seed, stream);
+    }
+
+    /**
+     * Set the seed, scrambled so that close seeds start far apart.
+     * @param seed the seed
+     */
+    @Override
+    public void setSeed(long seed) {
+        state = StateHash.mix(seed);
+    }
+
+    /**
+     * Set the seed of one of the independent streams of a seed, such as a live actor's stream of the level's
+     * seed.
+     * @param seed   the seed
+     * @param stream the stream's index
+     */
+    public void setSeed(long seed, int stream) {
+        state = StateHash.mix(StateHash.mix(seed) + (stream + 1L) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Generate the next pseudorandom 64 bits.
+     * @return the pseudorandom value
+     */
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return StateHash.mix(state);
+    }
+
+    /**
+     * Generate the next pseudorandom bits, the high bits of the next 64.
+     * @param bits the number of bits
+     * @return     the pseudorandom value
+     */
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Generate the next pseudorandom double between 0 inclusive and 1 exclusive, from a single draw.
+     * @return the pseudorandom value
+     */
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Get the generator's state.
+     * @return the 64-bit state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Set the generator's state, as previously obtained by <code> getState() </code>.
+     * @param state the 64-bit state
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,432 @@
+package game;
+
+import game.Monster.MonsterType;
+
+import ch.aplu.jgamegrid.Location;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Map;
+
+
+/**
+ * GameState class, an immutable value holding everything needed to put a game back exactly as it was:
+ * the location, direction, step size, random generator and recently visited locations of PacMan and every
+ * monster, the monsters' effect timers and type-specific state, the items still present, and the score.
+ * States are taken with <code> of </code> and put back with <code> restore </code>, both in time linear
+ * in the size of the state, so searches and rollouts can explore futures from the live game and rewind it
+ * afterwards, instead of undoing their changes one by one.
+ * <p>
+ * The items present are kept as a bitset indexed by the level's item order, split into fixed-size pages.
+ * A state taken from a previous one shares every page in which no item has been eaten since, so keeping
+ * many states around, as a rewind history does, costs little more than their actors.
+ * <p>
+ * States can also be written to and read back from a binary stream, which is how replays keep their
+ * snapshots and checkpoints are saved to disk.
+ * @see ObjectManager
+ * @see GameRandom
+ */
+public final class GameState {
+    // size of a page of the item set, in words and in items
+    private static final int PAGE_WORDS = 8;
+    private static final int PAGE_ITEMS = PAGE_WORDS * Long.SIZE;
+
+    // items present, and the number of pills and gold pieces left
+    private final int numLevelItems;
+    private final long[][] itemPages;
+    private final int numMandatoryItems;
+
+    // PacMan and the monsters
+    private final ActorState pacActor;
+    private final int score;
+    private final int nbPills;
+    private final MonsterState[] monsters;
+
+    /**
+     * The state every live actor has.
+     * @param location    the location
+     * @param direction   the direction faced
+     * @param stepSize    the step size
+     * @param randomState the random generator's state
+     * @param visited     the recently visited locations, oldest first
+     */
+    private record ActorState(Location location, double direction, int stepSize, long randomState,
+                              Location[] visited) {}
+
+    /**
+     * The state of a monster.
+     * @param actor       the state every live actor has
+     * @param stopMoving  whether the monster has been stopped
+     * @param frozenActs  the remaining number of acts frozen for
+     * @param boostedActs the remaining number of acts sped up for
+     * @param type        the monster's type
+     * @param typeState   the state specific to the monster's type, if any
+     */
+    private record MonsterState(ActorState actor, boolean stopMoving, int frozenActs, int boostedActs,
+                                MonsterType type, Object typeState) {}
+
+
+    /**
+     * Game state constructor.
+     * @param numLevelItems     the number of items the level started with
+     * @param itemPages         the pages of the item set
+     * @param numMandatoryItems the number of pills and gold pieces left
+     * @param pacActor          PacMan's state
+     * @param score             PacMan's score
+     * @param nbPills           the number of items PacMan has eaten
+     * @param monsters          the monsters' states
+     */
+    private GameState(int numLevelItems, long[][] itemPages, int numMandatoryItems,
+                      ActorState pacActor, int score, int nbPills, MonsterState[] monsters) {
+        this.numLevelItems     = numLevelItems;
+        this.itemPages         = itemPages;
+        this.numMandatoryItems = numMandatoryItems;
+        this.pacActor          = pacActor;
+        this.score             = score;
+        this.nbPills           = nbPills;
+        this.monsters          = monsters;
+    }
+
+
+    /**
+     * Take the state of a game.
+     * @param manager the object manager
+     * @return        the game state
+     */
+    public static GameState of(ObjectManager manager) {
+        return of(manager, null);
+    }
+
+    /**
+     * Take the state of a game, sharing the pages of the item set that have not changed since a previous
+     * state of the same level.
+     * @param manager  the object manager
+     * @param previous the previous state, or null if there is none
+     * @return         the game state
+     */
+    public static GameState of(ObjectManager manager, GameState previous) {
+        // the items present
+        int numLevelItems = manager.getLevelItems().size();
+        int numPages = (numLevelItems + PAGE_ITEMS - 1) / PAGE_ITEMS;
+        long[][] itemPages = new long[numPages][];
+        long[] page = new long[PAGE_WORDS];
+        int index = 0;
+        for (Map.Entry<HashLocation, Item> entry : manager.getLevelItems().entrySet()) {
+            if (manager.getItems().get(entry.getKey()) == entry.getValue())
+                page[(index % PAGE_ITEMS) / Long.SIZE] |= 1L << index;
+            index++;
+            if (index % PAGE_ITEMS == 0 || index == numLevelItems) {
+                int pageIndex = (index - 1) / PAGE_ITEMS;
+                boolean unchanged = previous != null && previous.numLevelItems == numLevelItems &&
+                                    Arrays.equals(previous.itemPages[pageIndex], page);
+                itemPages[pageIndex] = unchanged ? previous.itemPages[pageIndex] : page;
+                if (unchanged)
+                    Arrays.fill(page, 0);
+                else
+                    page = new long[PAGE_WORDS];
+            }
+        }
+
+        // the live actors
+        PacActor pac = manager.getPacActor();
+        ArrayList<Monster> monsterList = manager.getMonsters();
+        MonsterState[] monsters = new MonsterState[monsterList.size()];
+        for (int i = 0; i < monsters.length; i++) {
+            Monster monster = monsterList.get(i);
+            monsters[i] = new MonsterState(saveActor(monster), monster.isStopMoving(), monster.getFrozenActs(),
+                                           monster.getBoostedActs(), monster.getType(), monster.saveTypeState());
+        }
+        return new GameState(numLevelItems, itemPages, manager.getNumMandatoryItems(),
+                             saveActor(pac), pac.getScore(), pac.getNbPills(), monsters);
+    }
+
+    /**
+     * Save the state every live actor has.
+     * @param actor the live actor
+     * @return      the actor's state
+     */
+    private static ActorState saveActor(LiveActor actor) {
+        LinkedList<Location> visitedList = actor.getVisitedList();
+        Location[] visited = new Location[visitedList.size()];
+        int i = 0;
+        for (Location location : visitedList)
+            visited[i++] = location.clone();
+        return new ActorState(actor.getLocation().clone(), actor.getDirection(), actor.getStepSize(),
+                              actor.getRandomizer().getState(), visited);
+    }
+
+
+    /**
+     * Put a game back into this state. The game must be of the same level the state was taken from, and
+     * must not be acting at the same time, so it should be called from the simulation thread, or while
+     * the simulation is paused.
+     * @param manager the object manager
+     * @throws IllegalArgumentException if the game's items or monsters do not match the state's, in which
+     *                                  case the game is left as it was
+     */
+    public void restore(ObjectManager manager) {
+        // the state must be of the game's level
+        ArrayList<Monster> monsterList = manager.getMonsters();
+        if (manager.getLevelItems().size() != numLevelItems)
+            throw new IllegalArgumentException(String.format(
+                    "State has %d items, but the level has %d", numLevelItems, manager.getLevelItems().size()));
+        if (monsterList.size() != monsters.length)
+            throw new IllegalArgumentException(String.format(
+                    "State has %d monsters, but the level has %d", monsters.length, monsterList.size()));
+        for (int i = 0; i < monsters.length; i++)
+            if (monsterList.get(i).getType() != monsters[i].type())
+                throw new IllegalArgumentException(String.format(
+                        "State's monster %d is %s, but the level's is %s",
+                        i, monsters[i].type(), monsterList.get(i).getType()));
+
+        // the items present
+        int index = 0;
+        for (Map.Entry<HashLocation, Item> entry : manager.getLevelItems().entrySet()) {
+            boolean present = manager.getItems().get(entry.getKey()) == entry.getValue();
+            if (hasItem(index) && ! present)
+                manager.putItemBack(entry.getKey(), entry.getValue());
+            else if (! hasItem(index) && present)
+                manager.takeItemAway(entry.getKey(), entry.getValue());
+            index++;
+        }
+        manager.setNumMandatoryItems(numMandatoryItems);
+
+        // the live actors
+        PacActor pac = manager.getPacActor();
+        restoreActor(pac, pacActor);
+        pac.restoreProgress(score, nbPills);
+        for (int i = 0; i < monsters.length; i++) {
+            Monster monster = monsterList.get(i);
+            MonsterState state = monsters[i];
+            restoreActor(monster, state.actor());
+            monster.setStopMoving(state.stopMoving());
+            monster.setEffectActs(state.frozenActs(), state.boostedActs());
+            monster.restoreTypeState(state.typeState());
+        }
+        manager.rehash();
+    }
+
+    /**
+     * Restore the state every live actor has.
+     * @param actor the live actor
+     * @param state the actor's state
+     */
+    private static void restoreActor(LiveActor actor, ActorState state) {
+        actor.setLocation(state.location().clone());
+        actor.setDirection(state.direction());
+        actor.setStepSize(state.stepSize());
+        actor.getRandomizer().setState(state.randomState());
+        LinkedList<Location> visitedList = actor.getVisitedList();
+        visitedList.clear();
+        for (Location location : state.visited())
+            visitedList.add(location.clone());
+    }
+
+
+    /**
+     * Write the state to a binary stream, in a compact encoding: small counts and coordinates take a byte or
+     * two, and only the item set's pages are written in full.
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        writeVarInt(out, numLevelItems);
+        for (long[] page : itemPages)
+            for (long word : page)
+                out.writeLong(word);
+        writeVarInt(out, numMandatoryItems);
+        writeActor(out, pacActor);
+        writeVarInt(out, score);
+        writeVarInt(out, nbPills);
+        writeVarInt(out, monsters.length);
+        for (MonsterState monster : monsters) {
+            writeActor(out, monster.actor());
+            out.writeBoolean(monster.stopMoving());
+            writeVarInt(out, monster.frozenActs());
+            writeVarInt(out, monster.boostedActs());
+            out.writeByte(monster.type().ordinal());
+            out.writeBoolean(monster.typeState() != null);
+            if (monster.typeState() != null && monster.type() == MonsterType.Orion)
+                Orion.writeTypeState(out, monster.typeState());
+        }
+    }
+
+    /**
+     * Read a state back from a binary stream, as written by <code> write </code>.
+     * @param in the stream
+     * @return   the game state
+     * @throws IOException if the stream cannot be read
+     */
+    public static GameState read(DataInput in) throws IOException {
+        int numLevelItems = readVarInt(in);
+        long[][] itemPages = new long[(numLevelItems + PAGE_ITEMS - 1) / PAGE_ITEMS][PAGE_WORDS];
+        for (long[] page : itemPages)
+            for (int i = 0; i < PAGE_WORDS; i++)
+                page[i] = in.readLong();
+        int numMandatoryItems = readVarInt(in);
+        ActorState pacActor = readActor(in);
+        int score   = readVarInt(in);
+        int nbPills = readVarInt(in);
+        MonsterState[] monsters = new MonsterState[readVarInt(in)];
+        for (int i = 0; i < monsters.length; i++) {
+            ActorState actor = readActor(in);
+            boolean stopMoving = in.readBoolean();
+            int frozenActs     = readVarInt(in);
+            int boostedActs    = readVarInt(in);
+            MonsterType type   = MonsterType.values()[in.readUnsignedByte()];
+            Object typeState   = null;
+            if (in.readBoolean() && type == MonsterType.Orion)
+                typeState = Orion.readTypeState(in);
+            monsters[i] = new MonsterState(actor, stopMoving, frozenActs, boostedActs, type, typeState);
+        }
+        return new GameState(numLevelItems, itemPages, numMandatoryItems, pacActor, score, nbPills, monsters);
+    }
+
+    /**
+     * Write the state every live actor has.
+     * @param out   the stream
+     * @param state the actor's state
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeActor(DataOutput out, ActorState state) throws IOException {
+        writeLocation(out, state.location());
+        out.writeDouble(state.direction());
+        writeVarInt(out, state.stepSize());
+        out.writeLong(state.randomState());
+        writeVarInt(out, state.visited().length);
+        for (Location location : state.visited())
+            writeLocation(out, location);
+    }
+
+    /**
+     * Read the state every live actor has.
+     * @param in the stream
+     * @return   the actor's state
+     * @throws IOException if the stream cannot be read
+     */
+    private static ActorState readActor(DataInput in) throws IOException {
+        Location location = readLocation(in);
+        double direction  = in.readDouble();
+        int stepSize      = readVarInt(in);
+        long randomState  = in.readLong();
+        Location[] visited = new Location[readVarInt(in)];
+        for (int i = 0; i < visited.length; i++)
+            visited[i] = readLocation(in);
+        return new ActorState(location, direction, stepSize, randomState, visited);
+    }
+
+    /**
+     * Write a location of the grid, each coordinate as a variable-length integer.
+     * @param out      the stream
+     * @param location the location
+     * @throws IOException if the stream cannot be written
+     */
+    protected static void writeLocation(DataOutput out, Location location) throws IOException {
+        writeVarInt(out, location.getX());
+        writeVarInt(out, location.getY());
+    }
+
+    /**
+     * Read a location of the grid written by <code> writeLocation </code>.
+     * @param in the stream
+     * @return   the location
+     * @throws IOException if the stream cannot be read
+     */
+    protected static Location readLocation(DataInput in) throws IOException {
+        return new Location(readVarInt(in), readVarInt(in));
+    }
+
+    /**
+     * Write a non-negative integer in as few bytes as it needs, 7 bits per byte.
+     * @param out   the stream
+     * @param value the integer
+     * @throws IOException if the stream cannot be written
+     */
+    protected static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Read a non-negative integer written by <code> writeVarInt </code>.
+     * @param in the stream
+     * @return   the integer
+     * @throws IOException if the stream cannot be read
+     */
+    protected static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+
+    /**
+     * Check whether an item was still present.
+     * @param index the item's index in the level's item order
+     * @return      True if present, False if eaten
+     * @see   ObjectManager#getLevelItems()
+     */
+    public boolean hasItem(int index) {
+        long word = itemPages[index / PAGE_ITEMS][(index % PAGE_ITEMS) / Long.SIZE];
+        return (word & (1L << index)) != 0;
+    }
+
+    /**
+     * Get the number of items the level started with.
+     * @return the number of items
+     */
+    public int getNumLevelItems() {
+        return numLevelItems;
+    }
+
+    /**
+     * Get the number of pills and gold pieces left.
+     * @return the number of pills and gold pieces
+     */
+    public int getNumMandatoryItems() {
+        return numMandatoryItems;
+    }
+
+    /**
+     * Get PacMan's score.
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get PacMan's location.
+     * @return the location
+     */
+    public Location getPacLocation() {
+        return pacActor.location().clone();
+    }
+
+    /**
+     * Get the number of monsters.
+     * @return the number of monsters
+     */
+    public int getNumMonsters() {
+        return monsters.length;
+    }
+
+    /**
+     * Get a monster's location.
+     * @param index the monster's index, in the object manager's order
+     * @return      the location
+     */
+    public Location getMonsterLocation(int index) {
+        return monsters[index].actor().location().clone();
+    }
+}
@@ -16,28 +16,24 @@ public class Gold extends Item {
     private static final String GOLD_NAME = "gold";
 
     /**
-     * Constructor for Gold. It will set its own score, and call Item's constructor with its own
-     * sprite image directory.
+     * Constructor for Gold. It will set its own score, and call Item's constructor; its
+     * sprite image is drawn into the background when put to the game.
      */
     public Gold() {
-        super(DIRECTORY);
+        super();
         setScore(GOLD_SCORE);
         setName(GOLD_NAME);
     }
 
     /**
-     * Overridden putItem method, where gold puts itself to the game.
-     * @param bg        background of game grid
-     * @param game      the game
-     * @param location  the current gold item's location
-     * @see             GGBackground
-     * @see             Game
-     * @see             Location
+     * Overridden draw method, where gold draws itself into the background.
+     * @param bg     background of game grid
+     * @param center the center of the gold's cell, in pixels
+     * @see          GGBackground
      */
     @Override
-    protected void putActor(GGBackground bg, Game game, Location location) {
-        bg.setPaintColor(Color.yellow);
-        game.addActor(this, location);
+    protected void draw(GGBackground bg, Point center) {
+        drawSprite(bg, center, DIRECTORY);
     }
 
     /**
@@ -16,28 +16,24 @@ public class Ice extends Item {
     private static final String ICE_NAME = "ice";
 
     /**
-     * Constructor for Ice. It will set its own score, and call Item's constructor with its own
-     * sprite image directory.
+     * Constructor for Ice. It will set its own score, and call Item's constructor; its
+     * sprite image is drawn into the background when put to the game.
      */
     public Ice() {
-        super(DIRECTORY);
+        super();
         setScore(ICE_SCORE);
         setName(ICE_NAME);
     }
 
     /**
-     * Overridden putItem method, where ice puts itself to the game.
-     * @param bg        background of game grid
-     * @param game      the game
-     * @param location  the current gold item's location
-     * @see             GGBackground
-     * @see             Game
-     * @see             Location
+     * Overridden draw method, where ice draws itself into the background.
+     * @param bg     background of game grid
+     * @param center the center of the ice's cell, in pixels
+     * @see          GGBackground
      */
     @Override
-    protected void putActor(GGBackground bg, Game game, Location location) {
-        bg.setPaintColor(Color.blue);
-        game.addActor(this, location);
+    protected void draw(GGBackground bg, Point center) {
+        drawSprite(bg, center, DIRECTORY);
     }
 
     /**
@@ -19,6 +19,14 @@ public abstract class InanimateActor extends GameActor {
         super(src);
     }
 
+    /**
+     * Inanimate object constructor, for objects drawn into the background of the game grid rather than
+     * displayed as sprites.
+     */
+    public InanimateActor() {
+        super();
+    }
+
 
     /**
      * Check if an item is at PacMan's position, meaning PacMan has obtained item in question.
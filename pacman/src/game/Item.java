@@ -1,4 +1,9 @@
 package game;
+import game.utility.SpriteCache;
+
+import ch.aplu.jgamegrid.GGBackground;
+import ch.aplu.jgamegrid.Location;
+import java.awt.*;
 
 
 /**
@@ -6,6 +11,11 @@ package game;
  * but specifically only those that can be acquired by PacMan. It will make use of the object manager to
  * handle its locations, which extends to whether or not a live actor has 'collided' with its location or
  * not. In the case of pacman, that should imply the item, if not obstacles, have been acquired.
+ * <p>
+ * Items never move, so they are not actors of the game grid: each item is drawn once into the grid's
+ * background when put to the game, and its cell is cleared when it is eaten, so the grid neither acts nor
+ * paints them on every frame, however many there are. Items keep their location themselves, and items of a
+ * type share a single sprite from the sprite cache.
  * @see InanimateActor
  * @see ObjectManager
  */
@@ -16,11 +26,11 @@ public abstract class Item extends InanimateActor {
     private int score;
 
     /**
-     * Item constructor. Calls the constructor of InanimateActor abstract parent class.
-     * @param src the sprite image directory
+     * Item constructor. Calls the constructor of InanimateActor abstract parent class, without any sprite
+     * of its own since items are drawn into the background.
      */
-    public Item(String src) {
-        super(src);
+    public Item() {
+        super();
     }
 
     /**
@@ -45,8 +55,40 @@ public abstract class Item extends InanimateActor {
      */
     protected void removeItem(ObjectManager manager) {
         HashLocation hashLocation = new HashLocation(getLocation());
-        manager.getItems().remove(hashLocation);
-        removeSelf();
+        if (manager.getItems().remove(hashLocation) != null)
+            manager.toggleItemInStateHash(hashLocation.location());
+    }
+
+    /**
+     * Put the item to the game, drawing it into the background at its location.
+     * @param bg        background of game grid
+     * @param game      the game
+     * @param location  the item's location
+     * @see             GGBackground
+     * @see             Game
+     * @see             Location
+     */
+    @Override
+    protected void putActor(GGBackground bg, Game game, Location location) {
+        setLocation(location);
+        draw(bg, game.toPoint(location));
+    }
+
+    /**
+     * Abstract method to draw the item into the background.
+     * @param bg     background of game grid
+     * @param center the center of the item's cell, in pixels
+     */
+    protected abstract void draw(GGBackground bg, Point center);
+
+    /**
+     * Draw the sprite image of an item type into the background, centered on a cell.
+     * @param bg        background of game grid
+     * @param center    the center of the cell, in pixels
+     * @param directory the sprite image directory
+     */
+    protected static void drawSprite(GGBackground bg, Point center, String directory) {
+        SpriteCache.get(directory).drawCentered(bg.getContext(), center);
     }
 
     /**
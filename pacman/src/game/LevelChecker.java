@@ -2,16 +2,23 @@ package game;
 
 import ch.aplu.jgamegrid.Location;
 import game.utility.GameCallback;
+import game.utility.GameEvents;
+import game.utility.Metrics;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.Predicate;
 
 
 /**
  * The level checker class to check for level validity. This will dictate whether the gameplay mode
  * or the editor mode will be initiated by the Controller.
+ * <p>
+ * Every rule a level breaks is written to the game callback's log, and kept as a finding until the next
+ * check, for reports other than the log.
  * @see editor.Controller
  */
 public class LevelChecker {
@@ -21,6 +28,17 @@ public class LevelChecker {
     private final PathFinder pathFinder = new PathFinder();
     private final GameCallback gameCallback;
     private String xmlFile;
+    // the rules broken by the level last checked
+    private final ArrayList<Finding> findings = new ArrayList<>();
+
+    /**
+     * A rule broken by a level.
+     * @param file      the level's file name
+     * @param rule      the rule's name
+     * @param message   the message written to the log
+     * @param locations the offending locations, if any
+     */
+    public record Finding(String file, String rule, String message, List<Location> locations) {}
 
     /**
      * LevelChecker constructor. Requires game callback to report for errors.
@@ -43,19 +61,38 @@ public class LevelChecker {
         }
     }
 
+    /**
+     * Get the rules broken by the level last checked.
+     * @return the findings, in the order they were found
+     */
+    public List<Finding> getFindings() {
+        return List.copyOf(findings);
+    }
+
+    /**
+     * Report a rule broken by the level, to the log and as a finding.
+     * @param rule      the rule's name
+     * @param message   the message written to the log
+     * @param locations the offending locations
+     */
+    private void report(String rule, String message, List<Location> locations) {
+        gameCallback.writeString(message);
+        findings.add(new Finding(xmlFile, rule, message, List.copyOf(locations)));
+    }
+
 
     /**
      * Check for the validity of the number of mandatory items. Specifically, there must be at least
      * 2 items present for the level checking to succeed.
-     * @param game the game
-     * @return     True if valid, False if not
+     * @param manager the object manager
+     * @return        True if valid, False if not
      */
-    private boolean numItemsValid(Game game) {
-        HashMap<HashLocation, Item> mandatoryItems = game.getManager().getMandatoryItems();
+    private boolean numItemsValid(ObjectManager manager) {
+        HashMap<HashLocation, Item> mandatoryItems = manager.getMandatoryItems();
         boolean valid = mandatoryItems.size() >= MIN_NUM_MANDATORY;
         if (! valid) {
             String error = String.format("[Level %s – less than 2 Gold and Pill]", xmlFile);
-            gameCallback.writeString(error);
+            report("numItems", error, List.of());
         }
         return valid;
     }
@@ -64,13 +101,13 @@ public class LevelChecker {
      * Get the unreachable mandatory items. Mandatory items are items that must be obtained for the
      * player to win. If there are any unreachable mandatory items, the game will not be initiated
      * and instead the editor mode will be. This is all part of Controller's behaviors.
-     * @param game the game
-     * @return     the map of unreachable items
+     * @param manager the object manager
+     * @return        the map of unreachable items
      */
-    private HashMap<HashLocation, Item> unreachableItems(Game game) {
+    private HashMap<HashLocation, Item> unreachableItems(ObjectManager manager) {
         // relevant objects and instantiations
-        PacActor pacActor = game.getManager().getPacActor();
-        HashMap<HashLocation, Item> items = game.getManager().getMandatoryItems();
+        PacActor pacActor = manager.getPacActor();
+        HashMap<HashLocation, Item> items = manager.getMandatoryItems();
         ArrayList<Location> reachable = pathFinder.dfsGreedyCheck(pacActor);
         HashMap<HashLocation, Item> reachableMap = new HashMap<>();
 
@@ -92,11 +129,11 @@ public class LevelChecker {
 
     /**
      * Check if all mandatory items are reachable or not in the game.
-     * @param game the game
-     * @return     True if all mandatory items are reachable, and False if otherwise
+     * @param manager the object manager
+     * @return        True if all mandatory items are reachable, and False if otherwise
      */
-    private boolean reachableMandatoryItems(Game game) {
-        HashMap<HashLocation, Item> unreachable = unreachableItems(game);
+    private boolean reachableMandatoryItems(ObjectManager manager) {
+        HashMap<HashLocation, Item> unreachable = unreachableItems(manager);
         boolean isReachable = unreachable.size() == 0;
 
         // separate gold and pill
@@ -113,31 +150,35 @@ public class LevelChecker {
 
         // get the gold string to be put to callback's log
         boolean goldReachBool = true;
+        ArrayList<Location> goldLocations = new ArrayList<>();
         StringBuilder goldString =
                 new StringBuilder(String.format("[Level %s – %s not accessible:", xmlFile, Gold.class));
         for (Map.Entry<HashLocation, Item> entry : sortedGold.entrySet()) {
             goldReachBool = false;
+            goldLocations.add(entry.getValue().getLocation());
             goldString.append(String.format(" (%d,%d);",
                     entry.getValue().getX(), entry.getValue().getY()));
         }
         goldString.deleteCharAt(goldString.length() - 1);
         goldString.append("]");
         if (! goldReachBool)
-            gameCallback.writeString(String.valueOf(goldString));
+            report("reachable", String.valueOf(goldString), goldLocations);
 
         // get the pill string to be put to callback's log
         boolean pillReachBool = true;
+        ArrayList<Location> pillLocations = new ArrayList<>();
         StringBuilder pillString =
                 new StringBuilder(String.format("[Level %s – %s not accessible:", xmlFile, Pill.class));
         for (Map.Entry<HashLocation, Item> entry : sortedPill.entrySet()) {
             pillReachBool = false;
+            pillLocations.add(entry.getValue().getLocation());
             pillString.append(String.format(" (%d,%d);",
                     entry.getValue().getX(), entry.getValue().getY()));
         }
         pillString.deleteCharAt(pillString.length() - 1);
         pillString.append("]");
         if (! pillReachBool)
-            gameCallback.writeString(String.valueOf(pillString));
+            report("reachable", String.valueOf(pillString), pillLocations);
         return isReachable;
     }
 
@@ -145,15 +186,15 @@ public class LevelChecker {
     /**
      * Check for pacman actor's validity. Specifically, it will check if there is not yet a pacman
      * actor put to the game, or if there are more than 1.
-     * @param game the game
-     * @return     True if valid, False if not
+     * @param manager the object manager
+     * @return        True if valid, False if not
      */
-    private boolean pacActorValid(Game game) {
+    private boolean pacActorValid(ObjectManager manager) {
         // no PacActor on grid
-        ArrayList<Location> locations = game.getManager().getPacActorLocations();
+        ArrayList<Location> locations = manager.getPacActorLocations();
         if (locations.size() == 0) {
             String error = String.format("[Level %s – no start for PacMan]", xmlFile);
-            gameCallback.writeString(String.valueOf(error));
+            report("pacActor", error, List.of());
             return false;
         }
         // more than 1 PacActor on grid
@@ -164,7 +205,7 @@ public class LevelChecker {
                 errorBuilder.append(String.format(" (%d,%d);", location.getX(), location.getY()));
             errorBuilder.deleteCharAt(errorBuilder.length() - 1);
             errorBuilder.append("]");
-            gameCallback.writeString(String.valueOf(errorBuilder));
+            report("pacActor", String.valueOf(errorBuilder), locations);
             return false;
         }
         return true;
@@ -175,14 +216,14 @@ public class LevelChecker {
      * Check for the validity of portals. Specifically, it will check if portals are paired up
      * correctly (each portal must be paired with 1 and only 1 other portal, each pair can only
      * use up a single portal color).
-     * @param game the game
-     * @return     True if valid, False if not
+     * @param manager the object manager
+     * @return        True if valid, False if not
      */
-    private boolean portalsValid(Game game) {
+    private boolean portalsValid(ObjectManager manager) {
         boolean valid = true;
 
         // get a list, of list of portal pairs
-        HashMap<HashLocation, Portal> portals = game.getManager().getPortals();
+        HashMap<HashLocation, Portal> portals = manager.getPortals();
         ArrayList<Portal> whitePortals  = new ArrayList<>();
         ArrayList<Portal> yellowPortals = new ArrayList<>();
         ArrayList<Portal> goldPortals   = new ArrayList<>();
@@ -208,32 +249,79 @@ public class LevelChecker {
         // for each list of pairs
         for (ArrayList<Portal> portalPairs : allPortals) {
             if (portalPairs.size() > MAX_NUM_PORTAL_PAIR) {
+                ArrayList<Location> locations = new ArrayList<>();
                 StringBuilder errorBuilder =
                         new StringBuilder(String.format(
                                 "[Level %s – portal %s count is not 2:",
                                 xmlFile, portalPairs.get(0).getColor()));
-                for (Portal portal : portalPairs)
+                for (Portal portal : portalPairs) {
+                    locations.add(portal.getStaticLocation());
                     errorBuilder.append(String.format(
                             " (%d,%d);", portal.getStaticLocation().getX(), portal.getStaticLocation().getY()));
+                }
                 errorBuilder.deleteCharAt(errorBuilder.length() - 1);
                 errorBuilder.append("]");
-                gameCallback.writeString(String.valueOf(errorBuilder));
+                report("portals", String.valueOf(errorBuilder), locations);
                 valid = false;
             }
         }
         return valid;
     }
 
+    /**
+     * Run a phase of the level check, recording it as a flight recorder event.
+     * @param phase   the phase's name
+     * @param manager the object manager
+     * @param check   the phase's check
+     * @return        True if valid, False if not
+     */
+    private boolean checkPhase(String phase, ObjectManager manager, Predicate<ObjectManager> check) {
+        GameEvents.LevelCheck event = new GameEvents.LevelCheck();
+        event.begin();
+        boolean valid = check.test(manager);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = xmlFile;
+            event.phase = phase;
+            event.valid = valid;
+            event.commit();
+        }
+        return valid;
+    }
+
     /**
      * The method used publicly by the Controller to check for level validity of the game.
      * @param game the game
      * @return     True if valid, False if not
      */
     public boolean checkLevel(Game game) {
+        return checkLevel(game.getManager());
+    }
+
+    /**
+     * Check for level validity of a headless game instance.
+     * @param game the game instance
+     * @return     True if valid, False if not
+     */
+    public boolean checkLevel(GameInstance game) {
+        return checkLevel(game.getManager());
+    }
+
+    /**
+     * Check for level validity of a level loaded into an object manager, with or without a game grid.
+     * @param manager the object manager
+     * @return        True if valid, False if not
+     */
+    public boolean checkLevel(ObjectManager manager) {
+        long start = System.nanoTime();
+        findings.clear();
         // pacman check
-        boolean pacActorBool  = pacActorValid(game);
-        boolean portalsBool   = portalsValid(game);
-        boolean numItemsBool  = numItemsValid(game);
-        return pacActorBool && portalsBool && numItemsBool && reachableMandatoryItems(game);
+        boolean pacActorBool  = checkPhase("pacActor", manager, this::pacActorValid);
+        boolean portalsBool   = checkPhase("portals", manager, this::portalsValid);
+        boolean numItemsBool  = checkPhase("numItems", manager, this::numItemsValid);
+        boolean valid = pacActorBool && portalsBool && numItemsBool &&
+                        checkPhase("reachable", manager, this::reachableMandatoryItems);
+        Metrics.LEVEL_CHECK.recordSince(start);
+        return valid;
     }
 }
@@ -0,0 +1,408 @@
+package game;
+import game.Monster.MonsterType;
+import game.Portal.PortalColor;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import editor.Tile;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+
+/**
+ * LevelGenerator class, generating levels of any size in the XML format of the editor, to stress the game
+ * at scales the hand-made levels never reach. A level is a maze carved out of solid walls, depth first,
+ * then opened up or filled in until its walls make up the wanted ratio of the grid, with corridors wrapping
+ * around the edges of the torus. PacMan, the monsters, the portal pairs and the items are then put on
+ * random spaces, and the rest are left as paths.
+ * <p>
+ * Opening walls next to a space, or filling dead ends, never disconnects the spaces, but a portal can still
+ * cut a corridor off; every level is therefore checked with the very rules of <code> LevelChecker </code>,
+ * and generated anew from the next seed until it passes. Generation is reproducible: the same settings and
+ * seed always give the same levels, however many are generated in parallel.
+ * @see LevelChecker
+ * @see XMLParser
+ */
+public class LevelGenerator {
+    // attempts at a valid level before giving up
+    private static final int MAX_ATTEMPTS = 100;
+
+    // moves to the 4 neighbours of a cell
+    private static final int[][] STEPS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+
+    // properties the levels are checked with
+    private static final String VERSION = "simple";
+
+    /**
+     * The settings of the generated levels.
+     * @param width         the levels' width
+     * @param height        the levels' height
+     * @param wallRatio     the ratio of walls to cells, met as closely as the maze allows
+     * @param gold          the number of gold pieces
+     * @param pills         the number of pills
+     * @param ice           the number of ice cubes
+     * @param portals       the colors of the portal pairs, each color being a single pair
+     * @param monsters      the number of monsters of each type
+     * @param wrapCorridors the number of corridors wrapping around the edges
+     */
+    public record Settings(int width, int height, double wallRatio, int gold, int pills, int ice,
+                           Set<PortalColor> portals, Map<MonsterType, Integer> monsters, int wrapCorridors) {
+        /**
+         * Settings constructor, checking the settings can make a valid level.
+         * @throws IllegalArgumentException if they cannot
+         */
+        public Settings {
+            if (width < 3 || height < 3)
+                throw new IllegalArgumentException("Levels must be at least 3 by 3");
+            if (wallRatio < 0 || wallRatio >= 1)
+                throw new IllegalArgumentException("Invalid wall ratio " + wallRatio);
+            if (gold < 0 || pills < 0 || ice < 0 || gold + pills < 2)
+                throw new IllegalArgumentException("Levels need at least 2 Gold and Pill");
+            for (MonsterType type : monsters.keySet())
+                tileOf(type);
+            portals  = Set.copyOf(portals);
+            monsters = Map.copyOf(monsters);
+        }
+
+        /**
+         * Get settings of the usual densities for a given size: walls on 40% of the grid, a pill on half of
+         * the spaces, gold on a twentieth and ice on a fiftieth, two portal pairs, a monster of each type the
+         * level format has, and a wrapping corridor on each axis.
+         * @param width  the levels' width
+         * @param height the levels' height
+         * @return       the settings
+         */
+        public static Settings of(int width, int height) {
+            double wallRatio = 0.4;
+            int spaces = (int) (width * height * (1 - wallRatio));
+            return new Settings(width, height, wallRatio, Math.max(1, spaces / 20), Math.max(1, spaces / 2),
+                                spaces / 50, EnumSet.of(PortalColor.White, PortalColor.Yellow),
+                                Map.of(MonsterType.Troll, 1, MonsterType.TX5, 1), 2);
+        }
+
+        /**
+         * Get the number of tiles put on spaces.
+         * @return the number of tiles
+         */
+        private int numPlaced() {
+            int numMonsters = 0;
+            for (int count : monsters.values())
+                numMonsters += count;
+            return 1 + numMonsters + 2 * portals.size() + gold + pills + ice;
+        }
+    }
+
+
+    /**
+     * Generate levels in parallel, the i-th level being written to <code> level{i}.xml </code>.
+     * @param directory the directory to write to
+     * @param settings  the levels' settings
+     * @param count     the number of levels
+     * @param seed      the seed of the levels
+     * @return          the levels' XML files, in order
+     * @throws IllegalStateException if a level does not pass the level checker after many attempts
+     * @throws UncheckedIOException  if a level cannot be written
+     */
+    public static List<String> generateAll(Path directory, Settings settings, int count, long seed) {
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> {
+                    try {
+                        return generate(directory, String.format("level%d.xml", i), settings, mix(seed, i));
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                })
+                .toList();
+    }
+
+    /**
+     * Generate a level which passes the level checker.
+     * @param directory the directory to write to
+     * @param name      the level's file name
+     * @param settings  the level's settings
+     * @param seed      the seed of the level
+     * @return          the level's XML file
+     * @throws IOException if the level cannot be written or read back
+     * @throws IllegalStateException if the level does not pass the level checker after many attempts
+     */
+    public static String generate(Path directory, String name, Settings settings, long seed) throws IOException {
+        Path file = directory.resolve(name);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            write(file, layout(settings, mix(seed, attempt)));
+            if (check(file.toString(), seed))
+                return file.toString();
+        }
+        throw new IllegalStateException("No valid level generated for " + name);
+    }
+
+    /**
+     * Mix a seed with an index, so that consecutive indices give unrelated seeds.
+     * @param seed  the seed
+     * @param index the index
+     * @return      the mixed seed
+     */
+    private static long mix(long seed, long index) {
+        long mixed = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+
+    /**
+     * Lay a level out.
+     * @param settings the level's settings
+     * @param seed     the seed of the layout
+     * @return         the tiles, by row
+     * @throws IllegalArgumentException if the level has too few spaces for everything to be put on
+     */
+    private static String[][] layout(Settings settings, long seed) {
+        int width = settings.width(), height = settings.height();
+        GameRandom random = new GameRandom(seed);
+        boolean[][] open = new boolean[height][width];
+
+        // carve a maze through the cells of odd coordinates, depth first
+        int[] stack = new int[width * height];
+        int top = 0;
+        stack[top++] = width + 1;
+        open[1][1] = true;
+        while (top > 0) {
+            int x = stack[top - 1] % width, y = stack[top - 1] / width;
+            int[] choices = new int[STEPS.length];
+            int numChoices = 0;
+            for (int i = 0; i < STEPS.length; i++) {
+                int nextX = x + 2 * STEPS[i][0], nextY = y + 2 * STEPS[i][1];
+                if (nextX > 0 && nextX < width - 1 && nextY > 0 && nextY < height - 1 && ! open[nextY][nextX])
+                    choices[numChoices++] = i;
+            }
+            if (numChoices == 0) {
+                top--;
+                continue;
+            }
+            int[] step = STEPS[choices[random.nextInt(numChoices)]];
+            open[y + step[1]][x + step[0]] = true;
+            open[y + 2 * step[1]][x + 2 * step[0]] = true;
+            stack[top++] = (y + 2 * step[1]) * width + x + 2 * step[0];
+        }
+
+        // meet the wall ratio, then wrap corridors around the edges
+        int target = (int) Math.round(settings.wallRatio() * width * height);
+        int walls = width * height - countOpen(open);
+        while (walls > target && openWalls(open, random, walls - target) > 0)
+            walls = width * height - countOpen(open);
+        while (walls < target && fillDeadEnds(open, random, target - walls) > 0)
+            walls = width * height - countOpen(open);
+        wrap(open, random, settings.wrapCorridors());
+
+        // put everything on random spaces
+        ArrayList<Integer> spaces = new ArrayList<>();
+        for (int cell = 0; cell < width * height; cell++)
+            if (open[cell / width][cell % width])
+                spaces.add(cell);
+        if (spaces.size() < settings.numPlaced())
+            throw new IllegalArgumentException(String.format(
+                    "Only %d spaces for %d tiles", spaces.size(), settings.numPlaced()));
+        Collections.shuffle(spaces, random);
+        ArrayList<String> placed = new ArrayList<>();
+        placed.add(Tile.PAC_TILE);
+        for (MonsterType type : new TreeMap<>(settings.monsters()).keySet())
+            placed.addAll(Collections.nCopies(settings.monsters().get(type), tileOf(type)));
+        for (PortalColor color : new TreeSet<>(settings.portals()))
+            placed.addAll(Collections.nCopies(2, color.color));
+        placed.addAll(Collections.nCopies(settings.gold(), Tile.GOLD_TILE));
+        placed.addAll(Collections.nCopies(settings.pills(), Tile.PILL_TILE));
+        placed.addAll(Collections.nCopies(settings.ice(), Tile.ICE_TILE));
+
+        String[][] tiles = new String[height][width];
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                tiles[y][x] = open[y][x] ? Tile.PATH_TILE : Tile.WALL_TILE;
+        for (int i = 0; i < placed.size(); i++)
+            tiles[spaces.get(i) / width][spaces.get(i) % width] = placed.get(i);
+        return tiles;
+    }
+
+    /**
+     * Count the spaces of a layout.
+     * @param open whether each cell is a space
+     * @return     the number of spaces
+     */
+    private static int countOpen(boolean[][] open) {
+        int count = 0;
+        for (boolean[] row : open)
+            for (boolean cell : row)
+                if (cell) count++;
+        return count;
+    }
+
+    /**
+     * Count the spaces among the 4 neighbours of a cell inside the grid's border.
+     * @param open whether each cell is a space
+     * @param x    the cell's x coordinate
+     * @param y    the cell's y coordinate
+     * @return     the number of neighbouring spaces
+     */
+    private static int openNeighbours(boolean[][] open, int x, int y) {
+        int count = 0;
+        for (int[] step : STEPS)
+            if (open[y + step[1]][x + step[0]]) count++;
+        return count;
+    }
+
+    /**
+     * Get the cells inside the grid's border, in random order.
+     * @param open   whether each cell is a space
+     * @param random the random generator
+     * @return       the cells
+     */
+    private static ArrayList<Integer> innerCells(boolean[][] open, GameRandom random) {
+        int width = open[0].length, height = open.length;
+        ArrayList<Integer> cells = new ArrayList<>();
+        for (int y = 1; y < height - 1; y++)
+            for (int x = 1; x < width - 1; x++)
+                cells.add(y * width + x);
+        Collections.shuffle(cells, random);
+        return cells;
+    }
+
+    /**
+     * Open walls next to a space, which keeps the spaces connected.
+     * @param open   whether each cell is a space
+     * @param random the random generator
+     * @param limit  the most walls to open
+     * @return       the number of walls opened
+     */
+    private static int openWalls(boolean[][] open, GameRandom random, int limit) {
+        int width = open[0].length, opened = 0;
+        for (int cell : innerCells(open, random)) {
+            int x = cell % width, y = cell / width;
+            if (opened < limit && ! open[y][x] && openNeighbours(open, x, y) > 0) {
+                open[y][x] = true;
+                opened++;
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Fill dead ends, spaces with a single neighbouring space, which keeps the others connected.
+     * @param open   whether each cell is a space
+     * @param random the random generator
+     * @param limit  the most dead ends to fill
+     * @return       the number of dead ends filled
+     */
+    private static int fillDeadEnds(boolean[][] open, GameRandom random, int limit) {
+        int width = open[0].length, filled = 0;
+        for (int cell : innerCells(open, random)) {
+            int x = cell % width, y = cell / width;
+            if (filled < limit && open[y][x] && openNeighbours(open, x, y) == 1) {
+                open[y][x] = false;
+                filled++;
+            }
+        }
+        return filled;
+    }
+
+    /**
+     * Carve corridors wrapping around the edges, alternately across the width and the height, each from a
+     * random space straight to both edges.
+     * @param open   whether each cell is a space
+     * @param random the random generator
+     * @param count  the number of corridors
+     */
+    private static void wrap(boolean[][] open, GameRandom random, int count) {
+        int width = open[0].length, height = open.length;
+        for (int i = 0; i < count; i++) {
+            boolean across = i % 2 == 0;
+            int line = 1 + random.nextInt((across ? height : width) - 2);
+            int length = across ? width : height;
+            for (int j = 0; j < length && ! open[across ? line : j][across ? j : line]; j++)
+                open[across ? line : j][across ? j : line] = true;
+            for (int j = length - 1; j >= 0 && ! open[across ? line : j][across ? j : line]; j--)
+                open[across ? line : j][across ? j : line] = true;
+        }
+    }
+
+
+    /**
+     * Get the tile of a monster type in the level format.
+     * @param type the monster type
+     * @return     the tile
+     * @throws IllegalArgumentException if the level format has no tile for the type
+     */
+    private static String tileOf(MonsterType type) {
+        return switch (type) {
+            case Troll -> Tile.TROLL_TILE;
+            case TX5   -> Tile.TX5_TILE;
+            default    -> throw new IllegalArgumentException("No tile for monster " + type);
+        };
+    }
+
+    /**
+     * Write a level in the XML format of the editor.
+     * @param file  the level's XML file
+     * @param tiles the tiles, by row
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path file, String[][] tiles) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.println("<level>");
+            out.println("  <size>");
+            out.println("    <width>" + tiles[0].length + "</width>");
+            out.println("    <height>" + tiles.length + "</height>");
+            out.println("  </size>");
+            for (String[] row : tiles) {
+                out.println("  <row>");
+                for (String tile : row)
+                    out.println("    <cell>" + tile + "</cell>");
+                out.println("  </row>");
+            }
+            out.println("</level>");
+        }
+    }
+
+    /**
+     * Check a level with the level checker, as the editor would before playing it.
+     * @param xmlFile the level's XML file
+     * @param seed    the seed of the game
+     * @return        True if valid, False if not
+     * @throws IOException if the level cannot be read back
+     */
+    private static boolean check(String xmlFile, long seed) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PropertiesLoader.VERSION, VERSION);
+        properties.setProperty(PropertiesLoader.SEED, String.valueOf((int) seed));
+        GameInstance game;
+        try {
+            game = new GameInstance(LevelTemplate.load(xmlFile, properties), GameCallback.silent());
+        } catch (ParserConfigurationException | SAXException exception) {
+            throw new IOException(exception);
+        }
+        LevelChecker checker = new LevelChecker(new GameCallback(Writer.nullWriter()));
+        checker.setXmlFile(xmlFile);
+        return checker.checkLevel(game.getManager());
+    }
+
+
+    /**
+     * Generate levels of the usual densities from the command line.
+     * @param args the directory to write to, the number of levels, their width and height, and the seed
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createDirectories(Path.of(args[0]));
+        Settings settings = Settings.of(Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 30006;
+        for (String file : generateAll(directory, settings, Integer.parseInt(args[1]), seed))
+            System.out.println(file);
+    }
+}
@@ -0,0 +1,174 @@
+package game;
+import game.Game.Dimension;
+import game.utility.Metrics;
+
+import ch.aplu.jgamegrid.Location;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.*;
+
+
+/**
+ * LevelTemplate class, an immutable level parsed once from its XML file and properties, from which any
+ * number of headless game instances are made. A template holds what never changes within a level, viz. the
+ * walls, the navigation grid, and where the items, portals, monsters and PacMan start, and shares it with
+ * every instance; each instance then gets its own items, portals, live actors and game callback.
+ * <p>
+ * The template's walls and navigation grid are read by every instance at the same time, so they must never
+ * be modified once the template has been loaded.
+ * @see ObjectManager
+ * @see GameInstance
+ * @see GameHost
+ */
+public final class LevelTemplate {
+    // level file and properties
+    private final String xmlFile;
+    private final Properties properties;
+
+    // static layout, shared by every instance
+    private final Dimension dimension;
+    private final HashMap<HashLocation, Integer> walls;
+    private final NavigationGrid navigationGrid;
+
+    // where everything starts; the items and monsters are never put into any game, only copied
+    private final TreeMap<HashLocation, Item> items;
+    private final ArrayList<String> portalColors;
+    private final ArrayList<Location> portalLocations;
+    private final ArrayList<Monster> monsters;
+    private final ArrayList<Location> pacActorLocations;
+
+
+    /**
+     * Level template constructor.
+     * @param xmlFile    the level's XML file
+     * @param properties the game's properties
+     * @param parsed     the headless object manager the level was parsed into
+     */
+    private LevelTemplate(String xmlFile, Properties properties, ObjectManager parsed) {
+        this.xmlFile           = xmlFile;
+        this.properties        = properties;
+        this.dimension         = parsed.getDimension();
+        this.walls             = parsed.getWalls();
+        this.navigationGrid    = parsed.getNavigationGrid();
+        this.items             = new TreeMap<>(parsed.getLevelItems());
+        this.portalColors      = new ArrayList<>();
+        this.portalLocations   = new ArrayList<>();
+        this.monsters          = new ArrayList<>(parsed.getMonsters());
+        this.pacActorLocations = new ArrayList<>(parsed.getPacActorLocations());
+        for (Portal portal : new TreeMap<>(parsed.getPortals()).values()) {
+            portalColors.add(portal.getColor().color);
+            portalLocations.add(portal.getStaticLocation());
+        }
+    }
+
+    /**
+     * Load a level template from a level's XML file and the game's properties.
+     * @param xmlFile    the level's XML file
+     * @param properties the game's properties, copied so later changes do not affect the template
+     * @return           the level template
+     */
+    public static LevelTemplate load(String xmlFile, Properties properties)
+            throws ParserConfigurationException, IOException, SAXException {
+        long start = System.nanoTime();
+        Dimension dimension = XMLParser.getDimensions(xmlFile);
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        ObjectManager parsed = GameActor.withoutSprites(() -> {
+            ObjectManager manager = new ObjectManager(dimension);
+            manager.instantiateAll(xmlFile);
+            return manager;
+        });
+        LevelTemplate level = new LevelTemplate(xmlFile, copy, parsed);
+        Metrics.LEVEL_LOAD.recordSince(start);
+        return level;
+    }
+
+
+    /**
+     * Get the level's XML file.
+     * @return the XML file path
+     */
+    public String getXmlFile() {
+        return xmlFile;
+    }
+
+    /**
+     * Get the game's properties. Instances only read them.
+     * @return the properties
+     */
+    protected Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Get the level's dimension.
+     * @return the dimension
+     */
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Get the level's walls, shared by every instance.
+     * @return a hashmap where the key is the walls' locations
+     */
+    protected HashMap<HashLocation, Integer> getWalls() {
+        return walls;
+    }
+
+    /**
+     * Get the level's navigation grid, shared by every instance.
+     * @return the navigation grid
+     */
+    protected NavigationGrid getNavigationGrid() {
+        return navigationGrid;
+    }
+
+    /**
+     * Get the items the level starts with, which instances copy.
+     * @return a sorted map where the key is the items' locations, and value being the items
+     */
+    protected SortedMap<HashLocation, Item> getItems() {
+        return Collections.unmodifiableSortedMap(items);
+    }
+
+    /**
+     * Get the colors of the level's portals, in the same order as their locations.
+     * @return the portal colors
+     */
+    protected ArrayList<String> getPortalColors() {
+        return new ArrayList<>(portalColors);
+    }
+
+    /**
+     * Get the locations of the level's portals, in the same order as their colors.
+     * @return the portal locations
+     */
+    protected ArrayList<Location> getPortalLocations() {
+        ArrayList<Location> locations = new ArrayList<>();
+        for (Location location : portalLocations)
+            locations.add(location.clone());
+        return locations;
+    }
+
+    /**
+     * Get the monsters the level starts with, which instances copy by type and initial location.
+     * @return the monsters
+     */
+    protected List<Monster> getMonsters() {
+        return Collections.unmodifiableList(monsters);
+    }
+
+    /**
+     * Get all the recorded PacMan locations.
+     * @return a new list of the PacMan locations
+     */
+    protected ArrayList<Location> getPacActorLocations() {
+        ArrayList<Location> locations = new ArrayList<>();
+        for (Location location : pacActorLocations)
+            locations.add(location.clone());
+        return locations;
+    }
+}
@@ -4,7 +4,6 @@ import game.utility.GameCallback;
 import ch.aplu.jgamegrid.*;
 
 import java.util.LinkedList;
-import java.util.Random;
 import static java.lang.Math.abs;
 
 
@@ -23,7 +22,7 @@ import static java.lang.Math.abs;
 public abstract class LiveActor extends GameActor implements Movable {
     // manager and randomizer
     private final ObjectManager manager;
-    private final Random randomizer = new Random(0);
+    private final GameRandom randomizer = new GameRandom(0);
 
     // initial location for actor instantiation
     private Location initLocation;
@@ -45,6 +44,8 @@ public abstract class LiveActor extends GameActor implements Movable {
     // other properties
     private String name;
     private int stepSize;
+    // index of the actor in the state hash, found on its first move
+    private int hashIndex = -1;
 
     /**
      * Constructor for LiveActor.
@@ -79,6 +80,30 @@ public abstract class LiveActor extends GameActor implements Movable {
         return gameGrid;
     }
 
+    /**
+     * Set the live actor's location, updating the game's state hash.
+     * @param location the location
+     * @see   StateHash
+     */
+    @Override
+    public void setLocation(Location location) {
+        Location previous = hasLocation() ? getLocation() : null;
+        super.setLocation(location);
+        manager.moveInStateHash(this, previous, location);
+    }
+
+    /**
+     * Get the live actor's index in the state hash: 0 for PacMan, and 1 onwards for the monsters, in the
+     * object manager's order.
+     * @return the index
+     * @see    StateHash
+     */
+    protected int getHashIndex() {
+        if (hashIndex < 0 && (this instanceof PacActor || manager.getMonsters().contains(this)))
+            hashIndex = (this instanceof PacActor) ? 0 : 1 + manager.getMonsters().indexOf(this);
+        return Math.max(hashIndex, 0);
+    }
+
     /**
      * Get the object manager object; used frequently since the object manager is responsible for
      * updating all objects' locations.
@@ -104,8 +129,9 @@ public abstract class LiveActor extends GameActor implements Movable {
      * Get the randomizer which, depending on the context and type of actor, will dictate the next move that
      * the actor will make.
      * @return the randomizer
+     * @see    GameRandom
      */
-    public Random getRandomizer() {
+    public GameRandom getRandomizer() {
         return randomizer;
     }
 
@@ -127,6 +153,15 @@ public abstract class LiveActor extends GameActor implements Movable {
         return name;
     }
 
+    /**
+     * Get the list of recently visited locations, oldest first; used to save and restore the game state.
+     * @return the visited locations
+     * @see    GameState
+     */
+    protected LinkedList<Location> getVisitedList() {
+        return visitedList;
+    }
+
 
     /**
      * Set the step size for the live actor.
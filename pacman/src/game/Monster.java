@@ -1,6 +1,8 @@
 package game;
+import game.utility.GameEvents;
+import game.utility.Metrics;
+
 import ch.aplu.jgamegrid.*;
-import java.util.*;
 
 /**
  * Based on skeleton code for SWEN20003 Project, Semester 2, 2022, The University of Melbourne.
@@ -14,32 +16,45 @@ public abstract class Monster extends LiveActor {
 
     /**
      * Monster type enumeration. Each monster type has a boolean value indicating whether it is exclusive
-     * to the extended multiverse game or not.
+     * to the extended multiverse game or not, as well as its movement rule, which is whether it can move
+     * diagonally and whether it can get past walls.
      * <ul>
-     *     <li>Troll  - not exclusive to multiverse
-     *     <li>TX5    - not exclusive to multiverse
-     *     <li>Alien  - exclusive to multiverse
-     *     <li>Orion  - exclusive to multiverse
-     *     <li>Wizard - exclusive to multiverse
+     *     <li>Troll  - not exclusive to multiverse, moves in 4 directions
+     *     <li>TX5    - not exclusive to multiverse, moves in 4 directions
+     *     <li>Alien  - exclusive to multiverse, moves in 8 directions
+     *     <li>Orion  - exclusive to multiverse, moves in 4 directions
+     *     <li>Wizard - exclusive to multiverse, moves in 8 directions and through walls
      * </ul>
      */
     public enum MonsterType {
-        Troll(false),
-        TX5(false),
-        Alien(true),
-        Orion(true),
-        Wizard(true);
+        Troll(false, false, false),
+        TX5(false, false, false),
+        Alien(true, true, false),
+        Orion(true, false, false),
+        Wizard(true, true, true);
         public final boolean inMultiverse;
-        MonsterType(boolean inMultiverse) {
-            this.inMultiverse = inMultiverse;
+        public final boolean movesDiagonally;
+        public final boolean passesWalls;
+        MonsterType(boolean inMultiverse, boolean movesDiagonally, boolean passesWalls) {
+            this.inMultiverse    = inMultiverse;
+            this.movesDiagonally = movesDiagonally;
+            this.passesWalls     = passesWalls;
         }
     }
 
     // time-related constants
     public static final int SECOND_TO_MILLISECONDS = 1000;
     public static final int AGGRAVATE_TIME = 3;
+    private static final int MILLISECONDS_PER_ACT = Game.SIMULATION_PERIOD * LiveActor.SLOW_DOWN;
+    // names of the effects, as recorded
+    private static final String FREEZE = "freeze";
+    private static final String SPEED_UP = "speedUp";
     // if it has stopped moving or not
     private boolean stopMoving = false;
+    private MonsterType type;
+    // remaining number of acts the monster is frozen, or sped up for
+    private int frozenActs = 0;
+    private int boostedActs = 0;
 
     /**
      * Monster constructor.
@@ -67,16 +82,26 @@ public abstract class Monster extends LiveActor {
      * @param type the monster type
      */
     public void setType(MonsterType type) {
+        this.type = type;
         setName(type.toString());
     }
 
     /**
-     * Overridden method for setting monster's seed.
+     * Get the monster type.
+     * @return the monster type
+     */
+    public MonsterType getType() {
+        return type;
+    }
+
+    /**
+     * Overridden method for setting monster's seed; every monster's random choices are drawn from its own
+     * stream of the seed, by its index in the object manager.
      * @param seed specified seed
      */
     @Override
     protected void setSeed(int seed) {
-        getRandomizer().setSeed(seed);
+        getRandomizer().setSeed(seed, getHashIndex());
     }
 
     /**
@@ -88,46 +113,142 @@ public abstract class Monster extends LiveActor {
     }
 
     /**
-     * Stops monster's movement for a specified number of seconds.
+     * Check whether the monster has been stopped, as it is before the game starts and after it ends.
+     * @return True if stopped
+     */
+    protected boolean isStopMoving() {
+        return stopMoving;
+    }
+
+    /**
+     * Convert a number of seconds to the number of acts a monster makes in that time.
+     * @param seconds number of seconds
+     * @return        number of acts
+     */
+    private static int toActs(int seconds) {
+        return seconds * SECOND_TO_MILLISECONDS / MILLISECONDS_PER_ACT;
+    }
+
+    /**
+     * Stops monster's movement for a specified number of seconds. The time is counted in the monster's
+     * acts rather than on the wall clock, so the effect is part of the game state.
      * @param seconds number of seconds monster stops moving
      */
     protected void stopMoving(int seconds) {
-        setStopMoving(true);
-        Timer timer = new Timer(); // Instantiate Timer Object
-        final Monster monster = this;
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                monster.setStopMoving(false);
-            }
-        }, (long) seconds * SECOND_TO_MILLISECONDS);
+        frozenActs = toActs(seconds);
+        recordEffect(FREEZE, true, frozenActs);
     }
 
     /**
-     * Speed up monster's movement by a constant factor for a specified number of seconds.
+     * Speed up monster's movement by a constant factor for a specified number of seconds. The time is
+     * counted in the monster's acts rather than on the wall clock, so the effect is part of the game state.
      * @param seconds number of seconds monster speeds up
      */
     public void speedUp(int seconds) {
         this.setStepSize(AGGRESSIVE_STEP_SIZE);
-        Timer timer = new Timer();
-        final Monster monster = this;
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                monster.setStepSize(LiveActor.NORMAL_STEP_SIZE);
-            }
-        }, (long) seconds * SECOND_TO_MILLISECONDS);
+        boostedActs = toActs(seconds);
+        recordEffect(SPEED_UP, true, boostedActs);
+    }
+
+    /**
+     * Record the start or end of an effect as a flight recorder event, unless simulating the game ahead.
+     * @param effect  the effect's name
+     * @param started True when the effect starts, False when it wears off
+     * @param acts    the number of acts the effect lasts
+     */
+    private void recordEffect(String effect, boolean started, int acts) {
+        GameEvents.MonsterEffect event = new GameEvents.MonsterEffect();
+        if (! event.shouldCommit() || getManager().isSimulation())
+            return;
+        event.level   = getManager().getLevelFile();
+        event.monster = getName();
+        event.effect  = effect;
+        event.started = started;
+        event.acts    = acts;
+        event.commit();
+    }
+
+    /**
+     * Get the remaining number of acts the monster is frozen for.
+     * @return the number of acts
+     */
+    protected int getFrozenActs() {
+        return frozenActs;
+    }
+
+    /**
+     * Get the remaining number of acts the monster is sped up for.
+     * @return the number of acts
+     */
+    protected int getBoostedActs() {
+        return boostedActs;
+    }
+
+    /**
+     * Set the remaining number of acts of the monster's effects; used to restore the game state.
+     * @param frozenActs  the number of acts frozen for
+     * @param boostedActs the number of acts sped up for
+     */
+    protected void setEffectActs(int frozenActs, int boostedActs) {
+        this.frozenActs  = frozenActs;
+        this.boostedActs = boostedActs;
     }
 
 
     /**
-     * Overridden act method from Actor class for monster to act within the game.
+     * Overridden act method from Actor class for monster to act within the game; decides the monster's
+     * move and applies it straight away.
      * @see Actor
      */
     @Override
     public void act() {
+        applyMove(decideMove());
+    }
+
+    /**
+     * Decide the monster's move for the tick, the first phase of its act. The decision only changes the
+     * monster's own direction, random generator and type-specific state, and only reads those, the level
+     * and PacMan; so the decisions of every monster in a tick can be made at the same time, on different
+     * threads, as long as no actor is moved meanwhile.
+     * @return the location to move to, or null if the monster does not move
+     * @see    ObjectManager#actLiveActors()
+     */
+    protected Location decideMove() {
+        if (stopMoving || frozenActs > 0) return null;
+        long start = System.nanoTime();
+        Location next = nextMove();
+        if (! getManager().isSimulation())
+            Metrics.MONSTER_ACT.recordSince(start);
+        return next;
+    }
+
+    /**
+     * Apply the monster's move decided for the tick, the second phase of its act: move it, record the
+     * move to the game callback, and wear its effects off by an act.
+     * @param next the location to move to, or null if the monster does not move
+     * @see   #decideMove()
+     */
+    protected void applyMove(Location next) {
         if (stopMoving) return;
-        moveApproach();
+        if (frozenActs > 0) {
+            if (--frozenActs == 0)
+                recordEffect(FREEZE, false, 0);
+        }
+        else
+            moveAndRecord(next);
+        if (boostedActs > 0 && --boostedActs == 0) {
+            setStepSize(LiveActor.NORMAL_STEP_SIZE);
+            recordEffect(SPEED_UP, false, 0);
+        }
+    }
+
+    /**
+     * Make a single move, and record it to the game callback.
+     * @param next the location to move to, or null to stand still
+     */
+    private void moveAndRecord(Location next) {
+        if (next != null)
+            this.setLocation(next);
         int DIRECTION_EXCEED = 150;
         int DIRECTION_PRECEDE = 210;
         boolean enable = getDirection() > DIRECTION_EXCEED && getDirection() < DIRECTION_PRECEDE;
@@ -138,6 +259,23 @@ public abstract class Monster extends LiveActor {
     }
 
 
+    /**
+     * Save the state specific to the monster's type, beyond what every monster has.
+     * @return the state, or null if the type has none
+     * @see    GameState
+     */
+    protected Object saveTypeState() {
+        return null;
+    }
+
+    /**
+     * Restore the state specific to the monster's type, as saved by <code> saveTypeState() </code>.
+     * @param state the state
+     * @see   GameState
+     */
+    protected void restoreTypeState(Object state) {}
+
+
     /**
      * Adding itself to be an 'official' part of the game, viz. an actor of the game. Overridden
      * from Movable interface.
@@ -156,16 +294,26 @@ public abstract class Monster extends LiveActor {
      */
     @Override
     public void moveApproach() {
-        Location newLocation = nextMonsterLocation(this.getStepSize());
-        if (newLocation == null) {
-            newLocation = nextMonsterLocation(LiveActor.NORMAL_STEP_SIZE);
-        }
+        Location newLocation = nextMove();
 
         // If really cannot move, just stand still
         if (newLocation == null) return;
         this.setLocation(newLocation);
     }
 
+    /**
+     * Find the monster's next location at its step size, or at the normal step size if it cannot move
+     * that far.
+     * @return the next location, or null if the monster cannot move
+     */
+    private Location nextMove() {
+        Location newLocation = nextMonsterLocation(this.getStepSize());
+        if (newLocation == null) {
+            newLocation = nextMonsterLocation(LiveActor.NORMAL_STEP_SIZE);
+        }
+        return newLocation;
+    }
+
     /**
      * Abstract method for specific movement behavior of monster types
      */
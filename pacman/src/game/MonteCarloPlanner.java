@@ -0,0 +1,399 @@
+package game;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * MonteCarloPlanner class driving auto-mode PacMan with Monte-Carlo tree search. Each of PacMan's moves
+ * is decided by playing the game ahead many times in headless copies of the level, and taking the move
+ * whose futures turned out best, so the plan accounts for the monsters rather than merely dodging them.
+ * <p>
+ * Simulations run the monsters' own movement rules with their own seeded random generators, restored from
+ * a game state of the live game, so they play out exactly as the monsters of the live game would. Every
+ * worker owns a copy of the level and grows its own search tree from the same root, and their root
+ * statistics are summed up once each has played its share of the move's playouts.
+ * <p>
+ * Searches are bounded by a fixed number of playouts, and run by a fixed number of workers whatever the
+ * number of processors, each with its own random stream, so a search decides the same move on any machine
+ * and under any load.
+ * <p>
+ * Searches run in the background. When PacMan acts, the search for its next move is started from the
+ * state PacMan is about to leave, with its current move already applied; when PacMan acts again, it waits
+ * for the search to finish if it has not yet, and takes its result as long as PacMan is where the search
+ * expected it to be.
+ * @see GameState
+ * @see Autopilot
+ */
+public class MonteCarloPlanner implements Autopilot {
+    // playouts of each move's search, shared between the workers
+    private static final int PLAYOUTS_PER_MOVE = 1024;
+    private static final int NUM_WORKERS = 4;
+
+    // search parameters
+    private static final int MAX_STEPS = 24;
+    private static final double EXPLORATION = 0.7;
+    private static final double GREEDY_RATE = 0.8;
+    private static final double DISCOUNT = 0.95;
+
+    // outcomes of a simulated step
+    private static final int ONGOING = 0;
+    private static final int WON = 1;
+    private static final int LOST = 2;
+
+    // worker threads shared by all planners, which never keep the program alive on their own
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.min(NUM_WORKERS, Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "MonteCarlo");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // the live game, and the workers with their copies of the level
+    private final ObjectManager manager;
+    private final Worker[] workers;
+
+    // the search in flight and the last state taken
+    private CompletableFuture<Decision> pending = null;
+    private GameState previous = null;
+
+    /**
+     * A move decided by a search.
+     * @param from the location PacMan was expected to take the move from
+     * @param move the location to move to, or null to stay
+     */
+    private record Decision(Location from, Location move) {}
+
+
+    /**
+     * Monte-Carlo planner constructor. The copies of the level are made right away, so it must be called
+     * from the simulation thread once the level has been loaded.
+     * @param manager the object manager
+     */
+    public MonteCarloPlanner(ObjectManager manager) {
+        this.manager = manager;
+        NavigationGrid grid = manager.getNavigationGrid();
+        this.workers = new Worker[NUM_WORKERS];
+        for (int i = 0; i < NUM_WORKERS; i++)
+            workers[i] = new Worker(new ObjectManager(manager), grid, new GameRandom(manager.getSeed(), i));
+    }
+
+
+    /**
+     * Get the moves PacMan should follow from now on. The search started on the previous move is waited
+     * for, its decision taken if it was made for PacMan's location, and the search for the next move is
+     * started. PacMan stays put when there is no decision to take, as on its very first move.
+     * @param location PacMan's location
+     * @param current  the moves PacMan currently follows
+     * @return         the moves to follow
+     */
+    @Override
+    public LinkedList<Location> nextMoves(Location location, LinkedList<Location> current) {
+        LinkedList<Location> moves = new LinkedList<>();
+
+        // take in the decision for this move
+        if (pending != null) {
+            Decision decision = pending.exceptionally(exception -> null).join();
+            pending = null;
+            if (decision != null && decision.move() != null && decision.from().equals(location))
+                moves.add(decision.move());
+        }
+
+        // start the search for the next move, from where this move leads
+        if (manager.getNumMandatoryItems() > 0) {
+            GameState root = GameState.of(manager, previous);
+            Location move = moves.isEmpty() ? null : moves.getFirst();
+            Location from = (move == null) ? location : move;
+            previous = root;
+            pending = search(root, move).thenApply(best -> new Decision(from, best));
+        }
+        return moves;
+    }
+
+    /**
+     * Search on every worker, and merge their root statistics.
+     * @param root the state to search from
+     * @param move PacMan's move to apply to the state first, or null if none
+     * @return     the future of the most visited move
+     */
+    private CompletableFuture<Location> search(GameState root, Location move) {
+        ArrayList<CompletableFuture<Worker>> searches = new ArrayList<>();
+        int playouts = PLAYOUTS_PER_MOVE / NUM_WORKERS;
+        for (Worker worker : workers)
+            searches.add(CompletableFuture.supplyAsync(() -> worker.search(root, move, playouts), EXECUTOR));
+        return CompletableFuture.allOf(searches.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            long[] visits = new long[NavigationGrid.NUM_MOVES];
+            Worker first = searches.get(0).join();
+            for (CompletableFuture<Worker> search : searches)
+                search.join().addVisits(visits);
+            int best = NavigationGrid.NONE;
+            for (int i = 0; i < visits.length; i++)
+                if (visits[i] > 0 && (best == NavigationGrid.NONE || visits[i] > visits[best]))
+                    best = i;
+            return first.rootMove(best);
+        });
+    }
+
+
+    /**
+     * A node of a search tree, for the state reached by a sequence of PacMan's moves.
+     */
+    private static class Node {
+        private final Node[] children = new Node[NavigationGrid.NUM_MOVES];
+        private int visits = 0;
+        private double value = 0;
+    }
+
+
+    /**
+     * A worker, owning a headless copy of the level and growing one search tree per move. A worker is only
+     * ever used by one thread at a time.
+     */
+    private static class Worker {
+        // the copy of the level and its grid
+        private final ObjectManager world;
+        private final PacActor pacActor;
+        private final NavigationGrid grid;
+        private final GameRandom random;
+
+        // the current search: its root, and the cell PacMan moves from at the root
+        private GameState rootState;
+        private Node root;
+        private int rootCell;
+
+        // scratch arrays: distances to the nearest item, and the path of the current iteration
+        private final int[] itemDistances;
+        private final int[] queue;
+        private final Node[] path = new Node[MAX_STEPS + 1];
+        private final int[] moves = new int[NavigationGrid.NUM_MOVES];
+
+        /**
+         * Worker constructor.
+         * @param world  the headless copy of the level
+         * @param grid   the level's navigation grid
+         * @param random the random generator of the worker's own choices
+         */
+        private Worker(ObjectManager world, NavigationGrid grid, GameRandom random) {
+            this.world         = world;
+            this.pacActor      = world.getPacActor();
+            this.grid          = grid;
+            this.random        = random;
+            this.itemDistances = new int[grid.getNumCells()];
+            this.queue         = new int[grid.getNumCells()];
+        }
+
+        /**
+         * Grow a search tree from a state, by a number of playouts.
+         * @param state    the state to search from
+         * @param move     PacMan's move to apply to the state first, or null if none
+         * @param playouts the number of playouts
+         * @return         this worker, holding the tree
+         */
+        private Worker search(GameState state, Location move, int playouts) {
+            state.restore(world);
+            if (move != null)
+                pacActor.stepTo(move);
+            rootState = GameState.of(world);
+            rootCell  = grid.toCell(pacActor.getLocation());
+            root      = new Node();
+            updateItemDistances();
+            if (pacActor.collideMonster() || world.getNumMandatoryItems() <= 0)
+                return this;
+            for (int i = 0; i < playouts; i++)
+                iterate();
+            return this;
+        }
+
+        /**
+         * A single iteration: select a path down the tree, expand it by one node, play the rest of the
+         * game out with the default policy, and propagate the reward back up.
+         */
+        private void iterate() {
+            rootState.restore(world);
+            int items = world.getNumMandatoryItems();
+            double eaten = 0, discount = 1;
+            int outcome = ONGOING;
+            int steps = 0, size = 0;
+
+            // selection and expansion
+            Node node = root;
+            path[size++] = node;
+            boolean expanded = false;
+            while (outcome == ONGOING && steps < MAX_STEPS && ! expanded) {
+                int move = select(node);
+                if (move == NavigationGrid.NONE)
+                    break;
+                outcome = step(moveLocation(move));
+                if (node.children[move] == null) {
+                    node.children[move] = new Node();
+                    expanded = true;
+                }
+                node = node.children[move];
+                path[size++] = node;
+                eaten += discount * (items - world.getNumMandatoryItems());
+                items = world.getNumMandatoryItems();
+                discount *= DISCOUNT;
+                steps++;
+            }
+
+            // simulation
+            while (outcome == ONGOING && steps < MAX_STEPS) {
+                outcome = step(defaultMove());
+                eaten += discount * (items - world.getNumMandatoryItems());
+                items = world.getNumMandatoryItems();
+                discount *= DISCOUNT;
+                steps++;
+            }
+
+            // backpropagation
+            double reward = reward(outcome, eaten);
+            for (int i = 0; i < size; i++) {
+                path[i].visits++;
+                path[i].value += reward;
+            }
+        }
+
+        /**
+         * Simulate a single step of the game: every monster acts, then PacMan moves.
+         * @param next PacMan's next location, or null to stay
+         * @return     the outcome of the step
+         */
+        private int step(Location next) {
+            for (Monster monster : world.getMonsters())
+                monster.act();
+            if (pacActor.collideMonster())
+                return LOST;
+            if (next != null)
+                pacActor.stepTo(next);
+            if (pacActor.collideMonster())
+                return LOST;
+            return (world.getNumMandatoryItems() <= 0) ? WON : ONGOING;
+        }
+
+        /**
+         * Get the reward of a simulation, between 0 and 1: nothing for being caught, everything for
+         * winning, and otherwise a half for surviving plus a share for the items eaten, the sooner the better.
+         * @param outcome the outcome of the simulation
+         * @param eaten   the discounted number of items eaten
+         * @return        the reward
+         */
+        private double reward(int outcome, double eaten) {
+            if (outcome == LOST) return 0;
+            if (outcome == WON)  return 1;
+            double maxEaten = (1 - Math.pow(DISCOUNT, MAX_STEPS)) / (1 - DISCOUNT);
+            return 0.5 + 0.5 * eaten / maxEaten;
+        }
+
+
+        /**
+         * Select the move to take from a node: an untried move if there is one, or the move with the
+         * best upper confidence bound otherwise.
+         * @param node the node, for PacMan's current cell
+         * @return     the move index, or <code> NONE </code> if PacMan cannot move
+         */
+        private int select(Node node) {
+            int cell = grid.toCell(pacActor.getLocation());
+            int best = NavigationGrid.NONE;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+                if (grid.neighbour(cell, move) == NavigationGrid.NONE)
+                    continue;
+                Node child = node.children[move];
+                if (child == null || child.visits == 0)
+                    return move;
+                double score = child.value / child.visits +
+                               EXPLORATION * Math.sqrt(Math.log(node.visits) / child.visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * The default policy: most of the time, step towards the nearest item, and otherwise step randomly.
+         * @return the next location, or null if PacMan cannot move
+         */
+        private Location defaultMove() {
+            int cell = grid.toCell(pacActor.getLocation());
+            int numMoves = 0;
+            int nearest = NavigationGrid.NONE;
+            for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+                int next = grid.neighbour(cell, move);
+                if (next == NavigationGrid.NONE)
+                    continue;
+                moves[numMoves++] = next;
+                if (nearest == NavigationGrid.NONE || itemDistances[next] < itemDistances[nearest])
+                    nearest = next;
+            }
+            if (numMoves == 0)
+                return null;
+            int next = (random.nextDouble() < GREEDY_RATE) ? nearest : moves[random.nextInt(numMoves)];
+            return grid.toLocation(next);
+        }
+
+        /**
+         * Breadth-first search from every item at once, giving each cell the distance to its nearest item.
+         */
+        private void updateItemDistances() {
+            Arrays.fill(itemDistances, Integer.MAX_VALUE);
+            int head = 0, tail = 0;
+            for (HashLocation location : world.getItems().keySet()) {
+                if (world.getItems().get(location) instanceof Ice ||
+                    ! grid.inBound(location.getX(), location.getY()))
+                    continue;
+                int cell = grid.toCell(location.location());
+                itemDistances[cell] = 0;
+                queue[tail++] = cell;
+            }
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+                    int next = grid.neighbour(cell, move);
+                    if (next == NavigationGrid.NONE || itemDistances[next] != Integer.MAX_VALUE) continue;
+                    itemDistances[next] = itemDistances[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+
+        /**
+         * Get the location a move leads to from PacMan's current cell.
+         * @param move the move index
+         * @return     the location, or null if <code> NONE </code>
+         */
+        private Location moveLocation(int move) {
+            if (move == NavigationGrid.NONE)
+                return null;
+            int cell = grid.toCell(pacActor.getLocation());
+            return grid.toLocation(grid.neighbour(cell, move));
+        }
+
+        /**
+         * Get the location a move leads to from PacMan's cell at the root.
+         * @param move the move index
+         * @return     the location, or null if <code> NONE </code>
+         */
+        private Location rootMove(int move) {
+            return (move == NavigationGrid.NONE) ? null : grid.toLocation(grid.neighbour(rootCell, move));
+        }
+
+        /**
+         * Add the number of visits of every move at the root to a total.
+         * @param visits the total number of visits per move
+         */
+        private void addVisits(long[] visits) {
+            for (int move = 0; move < NavigationGrid.NUM_MOVES; move++)
+                if (root != null && root.children[move] != null)
+                    visits[move] += root.children[move].visits;
+        }
+    }
+}
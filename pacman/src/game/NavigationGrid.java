@@ -0,0 +1,261 @@
+package game;
+import game.Game.Dimension;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Map;
+
+
+/**
+ * Navigation grid, a compact and immutable view of a level's static layout which the planners search on.
+ * Every cell is packed into a single integer id, <code> y * width + x </code>, and the destination of each
+ * of the 4 moves from every cell is precomputed, with the torus wrap-around and portal teleportation
+ * already applied. A destination of -1 means the move is blocked by a wall.
+ * <p>
+ * The layout only depends on walls and portals, which never change within a level, so one grid can be
+ * built per level and shared by every search run on it. The grid also keeps the distances between the
+ * level's items once computed, so the planners of every game of the level share a single matrix.
+ * @see PathFinder
+ * @see RoutePlanner
+ */
+public class NavigationGrid {
+    // the 4 moves, as east, south, west and north
+    public static final int NUM_MOVES = 4;
+    private static final int[] MOVE_X = {1, 0, -1, 0};
+    private static final int[] MOVE_Y = {0, 1, 0, -1};
+
+    // value marking a blocked move or an unreached cell
+    public static final int NONE = -1;
+
+    // distance of unreachable items in a distance matrix, small enough for several to be summed
+    public static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    // grid dimensions and layout
+    private final int width;
+    private final int height;
+    private final boolean[] walls;
+    private final int[] neighbours;
+
+    // the items of the last distance matrix computed, and the matrix, never modified once computed
+    private int[] matrixCells = null;
+    private int[] matrix = null;
+
+
+    /**
+     * Navigation grid constructor. Builds the grid from the walls and portals of the object manager.
+     * @param manager the object manager
+     * @see   ObjectManager
+     */
+    public NavigationGrid(ObjectManager manager) {
+        Dimension dimension = manager.getDimension();
+        this.width  = dimension.width();
+        this.height = dimension.height();
+        this.walls  = new boolean[width * height];
+        this.neighbours = new int[width * height * NUM_MOVES];
+
+        // walls
+        for (HashLocation wall : manager.getWalls().keySet())
+            if (inBound(wall.getX(), wall.getY()))
+                walls[toCell(wall.location())] = true;
+
+        // portal destinations, where an unpaired portal simply acts as a space
+        int[] teleport = new int[width * height];
+        Arrays.fill(teleport, NONE);
+        for (Map.Entry<HashLocation, Portal> entry : manager.getPortals().entrySet()) {
+            Portal pair = entry.getValue().getPortalPair();
+            if (pair != null)
+                teleport[toCell(entry.getKey().location())] = toCell(pair.getStaticLocation());
+        }
+
+        // precompute every move's destination
+        for (int cell = 0; cell < width * height; cell++) {
+            int x = cell % width;
+            int y = cell / width;
+            for (int move = 0; move < NUM_MOVES; move++) {
+                int nextX = ((x + MOVE_X[move]) % width  + width)  % width;
+                int nextY = ((y + MOVE_Y[move]) % height + height) % height;
+                int next  = nextY * width + nextX;
+                if (teleport[next] != NONE)
+                    next = teleport[next];
+                neighbours[cell * NUM_MOVES + move] = (walls[next] || next == cell) ? NONE : next;
+            }
+        }
+    }
+
+    /**
+     * Get the grid's width.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the grid's height.
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the total number of cells, which is also the exclusive upper bound of cell ids.
+     * @return the number of cells
+     */
+    public int getNumCells() {
+        return width * height;
+    }
+
+    /**
+     * Check whether a cell is a wall.
+     * @param cell the cell id
+     * @return     True if the cell is a wall, False if otherwise
+     */
+    public boolean isWall(int cell) {
+        return walls[cell];
+    }
+
+    /**
+     * Get the destination cell of a move.
+     * @param cell the cell id
+     * @param move the move index, from 0 to <code> NUM_MOVES - 1 </code>
+     * @return     the destination cell id, or <code> NONE </code> if the move is blocked
+     */
+    public int neighbour(int cell, int move) {
+        return neighbours[cell * NUM_MOVES + move];
+    }
+
+    /**
+     * Check whether a coordinate is within the grid.
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return  True if within bound, False if otherwise
+     */
+    public boolean inBound(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Get the packed cell id of a location.
+     * @param location the location
+     * @return         the cell id
+     * @see            Location
+     */
+    public int toCell(Location location) {
+        return location.getY() * width + location.getX();
+    }
+
+    /**
+     * Get the location of a packed cell id.
+     * @param cell the cell id
+     * @return     the location
+     * @see        Location
+     */
+    public Location toLocation(int cell) {
+        return new Location(cell % width, cell / width);
+    }
+
+
+    /**
+     * Breadth-first search computing the number of moves from a source cell to every other cell.
+     * Unreachable cells are marked with <code> NONE </code>. Both arrays are supplied by the caller so
+     * that repeated searches do not allocate.
+     * @param source    the source cell id
+     * @param distances the output distances, of size at least the number of cells
+     * @param queue     the scratch queue, of size at least the number of cells
+     */
+    public void distancesFrom(int source, int[] distances, int[] queue) {
+        Arrays.fill(distances, 0, getNumCells(), NONE);
+        int head = 0, tail = 0;
+        distances[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int move = 0; move < NUM_MOVES; move++) {
+                int next = neighbours[cell * NUM_MOVES + move];
+                if (next != NONE && distances[next] == NONE) {
+                    distances[next] = distances[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Get the distances between every pair of items, computed with a breadth-first search per item the
+     * first time the items are asked for, and shared afterwards. The matrix must never be modified.
+     * @param cells the items' cell ids
+     * @return      the distance from the <code> i </code>-th item to the <code> j </code>-th one at
+     *              <code> i * cells.length + j </code>, or <code> UNREACHABLE </code>
+     */
+    public synchronized int[] distanceMatrix(int[] cells) {
+        if (matrix != null && Arrays.equals(matrixCells, cells))
+            return matrix;
+        int numItems = cells.length;
+        int[] distances = new int[getNumCells()];
+        int[] queue     = new int[getNumCells()];
+        int[] computed  = new int[numItems * numItems];
+        for (int i = 0; i < numItems; i++) {
+            distancesFrom(cells[i], distances, queue);
+            for (int j = 0; j < numItems; j++) {
+                int distance = distances[cells[j]];
+                computed[i * numItems + j] = (distance == NONE) ? UNREACHABLE : distance;
+            }
+        }
+        matrixCells = cells.clone();
+        matrix = computed;
+        return matrix;
+    }
+
+    /**
+     * Get the shortest path between 2 cells, excluding the source and including the target.
+     * @param source the source cell id
+     * @param target the target cell id
+     * @return       the list of locations to move to, empty if the target is unreachable
+     */
+    public LinkedList<Location> shortestPath(int source, int target) {
+        int[] parents = new int[getNumCells()];
+        Arrays.fill(parents, NONE);
+        return shortestPath(source, target, parents, new int[getNumCells()]);
+    }
+
+    /**
+     * Get the shortest path between 2 cells, excluding the source and including the target. Both arrays
+     * are supplied by the caller so that repeated searches do not allocate; only the cells searched are
+     * touched, and they are reset afterwards, so a search costs the area searched rather than the grid's.
+     * @param source  the source cell id
+     * @param target  the target cell id
+     * @param parents the scratch parents, of size at least the number of cells, all <code> NONE </code>,
+     *                and left so
+     * @param queue   the scratch queue, of size at least the number of cells
+     * @return        the list of locations to move to, empty if the target is unreachable
+     */
+    public LinkedList<Location> shortestPath(int source, int target, int[] parents, int[] queue) {
+        LinkedList<Location> path = new LinkedList<>();
+
+        // breadth-first search until the target is reached
+        int head = 0, tail = 0;
+        parents[source] = source;
+        queue[tail++] = source;
+        while (head < tail && parents[target] == NONE) {
+            int cell = queue[head++];
+            for (int move = 0; move < NUM_MOVES; move++) {
+                int next = neighbours[cell * NUM_MOVES + move];
+                if (next != NONE && parents[next] == NONE) {
+                    parents[next] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        // walk back from the target, then reset the cells searched
+        if (parents[target] != NONE && source != target)
+            for (int cell = target; cell != source; cell = parents[cell])
+                path.addFirst(toLocation(cell));
+        for (int i = 0; i < tail; i++)
+            parents[queue[i]] = NONE;
+        return path;
+    }
+}
@@ -2,6 +2,7 @@ package game;
 import game.Game.Dimension;
 import game.utility.GameCallback;
 import game.utility.PropertiesLoader;
+import game.utility.SpriteCache;
 
 import ch.aplu.jgamegrid.Actor;
 import ch.aplu.jgamegrid.Location;
@@ -11,6 +12,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 /**
@@ -26,6 +28,9 @@ import java.util.stream.Collectors;
  * @see LiveActor
  */
 public class ObjectManager {
+    // number of monsters from which their moves are decided in parallel
+    private static final int PARALLEL_MONSTERS = 64;
+
     // PacMan
     private PacActor pacActor;
     private Actor killedPacActor;
@@ -37,6 +42,8 @@ public class ObjectManager {
     private final ArrayList<Monster> monsters;
     // hashmap of all items with their location as key
     private final HashMap<HashLocation, Item> items;
+    // all items the level started with, ordered by location
+    private final TreeMap<HashLocation, Item> levelItems;
     // hashmap of all walls with their location as key
     private final HashMap<HashLocation, Integer> walls;
     // hashmap of portals with their respective position
@@ -53,6 +60,22 @@ public class ObjectManager {
     private int numMandatoryItems = 0;
     private boolean isMultiverse = false;
     private final Game game;
+    private final Dimension dimension;
+
+    // the level's navigation grid, built on first use
+    private NavigationGrid navigationGrid = null;
+    // whether this is a copy of a level used to simulate the game ahead
+    private boolean isSimulation = false;
+    // the level's file and the game's seed, which identify a session in recordings
+    private String levelFile = null;
+    private int seed = 0;
+    // the recorder of the game, if it is recorded
+    private ReplayRecorder replayRecorder = null;
+    // the hash of the state, kept up to date as actors move and items are eaten, and the hashes of the ticks
+    private long stateHash = 0;
+    private HashStream hashStream = null;
+    // the commands other threads post to the running game
+    private final CommandQueue commands = new CommandQueue();
 
     /**
      * Constructor for ObjectManager.
@@ -63,18 +86,310 @@ public class ObjectManager {
         this.pacActorLocations = new ArrayList<>();
         this.monsters          = new ArrayList<>();
         this.items             = new HashMap<>();
+        this.levelItems        = new TreeMap<>();
+        this.walls             = new HashMap<>();
+        this.portals           = new HashMap<>();
+        this.portalFactory     = SingletonPortalFactory.getInstance();
+        this.dimension         = null;
+    }
+
+    /**
+     * Constructor for a headless instance of a level template, used to run the game without any game grid.
+     * Walls and the navigation grid are shared with the template, while the items, portals and live actors
+     * are the instance's own detached and sprite-less actors, put at their initial locations once the game
+     * starts. The instance logs to its own game callback.
+     * @param level        the level template
+     * @param gameCallback the game callback of the instance
+     * @see   LevelTemplate
+     * @see   GameInstance
+     */
+    protected ObjectManager(LevelTemplate level, GameCallback gameCallback) {
+        this.game              = null;
+        this.gameCallback      = gameCallback;
+        this.dimension         = level.getDimension();
+        this.pacActorLocations = level.getPacActorLocations();
+        this.monsters          = new ArrayList<>();
+        this.items             = new HashMap<>();
+        this.levelItems        = new TreeMap<>();
+        this.walls             = level.getWalls();
+        this.portals           = new HashMap<>();
+        this.portalFactory     = SingletonPortalFactory.getInstance();
+        this.navigationGrid    = level.getNavigationGrid();
+        this.levelFile         = level.getXmlFile();
+        GameActor.withoutSprites(() -> {
+            for (Map.Entry<HashLocation, Item> entry : level.getItems().entrySet()) {
+                Item item = copyItem(entry.getValue());
+                item.setLocation(entry.getKey().location());
+                items.put(entry.getKey(), item);
+                levelItems.put(entry.getKey(), item);
+            }
+            portalFactory.makePortals(portals, level.getPortalColors(), level.getPortalLocations());
+            for (Monster monster : level.getMonsters()) {
+                Monster copy = makeMonster(monster.getType());
+                copy.setInitLocation(monster.getInitLocation().clone());
+                monsters.add(copy);
+            }
+            pacActor = new PacActor(this);
+            if (pacActorLocations.size() > 0)
+                pacActor.setInitLocation(pacActorLocations.get(0));
+            return pacActor;
+        });
+        this.numMandatoryItems = getMandatoryItems().size();
+    }
+
+    /**
+     * Constructor for an empty headless object manager of a given dimension, into which a level is
+     * instantiated without any game grid; used to parse level templates.
+     * @param dimension the level's dimension
+     * @see   LevelTemplate
+     */
+    protected ObjectManager(Dimension dimension) {
+        this.game              = null;
+        this.gameCallback      = GameCallback.silent();
+        this.dimension         = dimension;
+        this.pacActorLocations = new ArrayList<>();
+        this.monsters          = new ArrayList<>();
+        this.items             = new HashMap<>();
+        this.levelItems        = new TreeMap<>();
         this.walls             = new HashMap<>();
         this.portals           = new HashMap<>();
         this.portalFactory     = SingletonPortalFactory.getInstance();
     }
 
+    /**
+     * Constructor for a headless copy of a level, used to simulate the game ahead without any game grid.
+     * Walls and portals never change, so they are shared with the level, while the items and live actors
+     * are new, detached and sprite-less copies, which are put in the level's state by restoring a game
+     * state into the copy. Nothing done in the copy is logged.
+     * <p>
+     * The monsters are made while the copy still holds every item of the level, as the live monsters were,
+     * so that monsters keeping track of the items, such as Orion, know of the items already eaten too; the
+     * eaten items are only taken out afterwards.
+     * @param level the object manager of the level to copy
+     * @see   GameState
+     */
+    protected ObjectManager(ObjectManager level) {
+        this.game              = null;
+        this.gameCallback      = GameCallback.silent();
+        this.dimension         = level.getDimension();
+        this.pacActorLocations = new ArrayList<>(level.pacActorLocations);
+        this.monsters          = new ArrayList<>();
+        this.items             = new HashMap<>();
+        this.levelItems        = new TreeMap<>();
+        this.walls             = level.walls;
+        this.portals           = level.portals;
+        this.portalFactory     = level.portalFactory;
+        this.isMultiverse      = level.isMultiverse;
+        this.numMandatoryItems = level.numMandatoryItems;
+        this.navigationGrid    = level.getNavigationGrid();
+        this.isSimulation      = true;
+        this.levelFile         = level.levelFile;
+        this.seed              = level.seed;
+        GameActor.withoutSprites(() -> {
+            for (Map.Entry<HashLocation, Item> entry : level.levelItems.entrySet()) {
+                Item item = copyItem(entry.getValue());
+                item.setLocation(entry.getKey().location());
+                levelItems.put(entry.getKey(), item);
+                items.put(entry.getKey(), item);
+            }
+            for (Monster monster : level.monsters)
+                monsters.add(makeMonster(monster.getType()));
+            for (Map.Entry<HashLocation, Item> entry : level.levelItems.entrySet())
+                if (level.items.get(entry.getKey()) != entry.getValue())
+                    items.remove(entry.getKey());
+            pacActor = new PacActor(this);
+            return pacActor;
+        });
+    }
+
+    /**
+     * Make a new item of the same kind as another.
+     * @param item the item
+     * @return     the new item
+     */
+    private static Item copyItem(Item item) {
+        if (item instanceof Gold) return new Gold();
+        if (item instanceof Pill) return new Pill();
+        return new Ice();
+    }
+
+    /**
+     * Make a new monster of a given type.
+     * @param type the monster type
+     * @return     the new monster
+     */
+    private Monster makeMonster(Monster.MonsterType type) {
+        return switch (type) {
+            case Troll  -> new Troll(this);
+            case TX5    -> new TX5(this);
+            case Alien  -> new Alien(this);
+            case Orion  -> new Orion(this);
+            case Wizard -> new Wizard(this);
+        };
+    }
+
     /**
      * Get the game's dimension, which is an object representing the width and height of the
      * game's grid.
      * @return the game's dimension
      */
     public Dimension getDimension() {
-        return game.getDimension();
+        return (game != null) ? game.getDimension() : dimension;
+    }
+
+    /**
+     * Check whether the game runs without any game grid, as level instances and simulations do.
+     * @return True if headless
+     */
+    protected boolean isHeadless() {
+        return game == null;
+    }
+
+    /**
+     * Check whether this is a copy of a level used to simulate the game ahead, whose activity must not be
+     * counted in the game's metrics.
+     * @return True if a simulation
+     * @see    game.utility.Metrics
+     */
+    protected boolean isSimulation() {
+        return isSimulation;
+    }
+
+    /**
+     * Get the file of the level being played.
+     * @return the level's XML file, or null if none has been loaded
+     */
+    public String getLevelFile() {
+        return levelFile;
+    }
+
+    /**
+     * Get the game's random seed.
+     * @return the seed
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the recorder of the game.
+     * @return the replay recorder, or null if the game is not recorded
+     */
+    public ReplayRecorder getReplayRecorder() {
+        return replayRecorder;
+    }
+
+    /**
+     * Set the recorder of the game.
+     * @param replayRecorder the replay recorder, or null to stop recording
+     */
+    public void setReplayRecorder(ReplayRecorder replayRecorder) {
+        this.replayRecorder = replayRecorder;
+    }
+
+    /**
+     * Get the windowed game the manager belongs to.
+     * @return the game, or null if the manager belongs to a headless game
+     */
+    protected Game getGame() {
+        return game;
+    }
+
+    /**
+     * Get the queue of commands other threads post to the running game.
+     * @return the command queue
+     */
+    public CommandQueue getCommands() {
+        return commands;
+    }
+
+    /**
+     * Apply an input of the player: record it if the game is recorded, and turn PacMan to its direction,
+     * taking a step that way if it can. Must be applied between two ticks, on the thread playing them.
+     * @param direction the direction, in degrees
+     * @return          true if PacMan has collided with a monster, false if otherwise
+     * @see   PacActor#turn(int)
+     */
+    protected boolean applyInput(int direction) {
+        if (replayRecorder != null)
+            replayRecorder.input(direction);
+        pacActor.turn(direction);
+        return pacActor.collideMonster();
+    }
+
+    /**
+     * Get the stream the hashes of the ticks are recorded to.
+     * @return the hash stream, or null if the hashes are not recorded
+     */
+    public HashStream getHashStream() {
+        return hashStream;
+    }
+
+    /**
+     * Set the stream the hashes of the ticks are recorded to.
+     * @param hashStream the hash stream, or null to stop recording the hashes
+     */
+    public void setHashStream(HashStream hashStream) {
+        this.hashStream = hashStream;
+    }
+
+    /**
+     * Get the hash of the state, as kept up to date.
+     * @return the state hash
+     * @see    StateHash
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Update the state hash for a live actor's move.
+     * @param actor    the live actor
+     * @param previous the actor's previous location, or null if it was nowhere
+     * @param location the actor's new location
+     */
+    protected void moveInStateHash(LiveActor actor, Location previous, Location location) {
+        int index = actor.getHashIndex();
+        stateHash ^= StateHash.actorKey(index, previous) ^ StateHash.actorKey(index, location);
+    }
+
+    /**
+     * Update the state hash for an item eaten, or put back.
+     * @param location the item's location
+     */
+    protected void toggleItemInStateHash(Location location) {
+        stateHash ^= StateHash.itemKey(location);
+    }
+
+    /**
+     * Compute the state hash from scratch; done whenever actors are put anywhere other than by moving.
+     */
+    protected void rehash() {
+        stateHash = StateHash.of(this);
+    }
+
+    /**
+     * Tell the end of a tick to the replay recorder and the hash stream, if any.
+     */
+    protected void endTick() {
+        if (replayRecorder == null && hashStream == null)
+            return;
+        long tickHash = StateHash.tick(this);
+        if (hashStream != null)
+            hashStream.record(tickHash);
+        if (replayRecorder != null)
+            replayRecorder.endTick(tickHash);
+    }
+
+    /**
+     * Get the level's navigation grid, built on first use and shared by every planner of the level.
+     * @return the navigation grid
+     * @see    NavigationGrid
+     */
+    protected synchronized NavigationGrid getNavigationGrid() {
+        if (navigationGrid == null)
+            navigationGrid = new NavigationGrid(this);
+        return navigationGrid;
     }
 
     /**
@@ -122,6 +437,16 @@ public class ObjectManager {
         return items;
     }
 
+    /**
+     * Get all items the level started with, whether eaten since or not. The order is fixed for the level,
+     * so an item's position in it can be used as an index.
+     * @return a sorted map where the key is the items' locations, and value being the items
+     * @see    GameState
+     */
+    protected TreeMap<HashLocation, Item> getLevelItems() {
+        return levelItems;
+    }
+
     /**
      * Get all gold and pill items currently still in the game.
      * @return a hashmap where the key is the items' locations, and value being the items
@@ -195,6 +520,41 @@ public class ObjectManager {
             numMandatoryItems--;
     }
 
+    /**
+     * Set the number of pills and gold pieces left in the game; used to restore the game state.
+     * @param numMandatoryItems the number of pills and gold pieces
+     * @see   GameState
+     */
+    protected void setNumMandatoryItems(int numMandatoryItems) {
+        this.numMandatoryItems = numMandatoryItems;
+    }
+
+    /**
+     * Put an eaten item back into the game, without any effect; used to restore the game state.
+     * @param location the item's location
+     * @param item     the item
+     * @see   GameState
+     */
+    protected void putItemBack(HashLocation location, Item item) {
+        HashLocation.put(items, location.location(), item);
+        toggleItemInStateHash(location.location());
+        if (game != null)
+            item.putActor(game.getBg(), game, location.location());
+    }
+
+    /**
+     * Take an item out of the game as if it were eaten, without any effect; used to restore the game state.
+     * @param location the item's location
+     * @param item     the item
+     * @see   GameState
+     */
+    protected void takeItemAway(HashLocation location, Item item) {
+        HashLocation.delete(items, location.location());
+        toggleItemInStateHash(location.location());
+        if (game != null)
+            game.getBg().fillCell(location.location(), Game.COLOR_SPACE);
+    }
+
 
     /**
      * Parse the game's properties file.
@@ -202,19 +562,19 @@ public class ObjectManager {
      */
     public void parseProperties(Properties properties) {
         // random seed
-        int seed = Integer.parseInt(properties.getProperty(PropertiesLoader.SEED));
+        seed = Integer.parseInt(properties.getProperty(PropertiesLoader.SEED));
         isMultiverse = properties.getProperty(PropertiesLoader.VERSION).contains(PropertiesLoader.IS_MULTIVERSE);
         // parse pacman (comment out to test for torus)
         pacActor.setAuto(Boolean.parseBoolean(properties.getProperty(
                 pacActor.getName() + PropertiesLoader.AUTO_EXTENSION))
         );
-        /// SET SEED AND SLOW DOWN TO REDUCE GAME DIFFICULTY
+        pacActor.setMonteCarlo(PropertiesLoader.MONTE_CARLO.equals(properties.getProperty(
+                pacActor.getName() + PropertiesLoader.AUTOPILOT_EXTENSION))
+        );
+        /// SET SEED
         pacActor.setSeed(seed);
-        pacActor.setSlowDown(LiveActor.SLOW_DOWN);
-        for (Monster monster : monsters) {
+        for (Monster monster : monsters)
             monster.setSeed(seed);
-            monster.setSlowDown(LiveActor.SLOW_DOWN);
-        }
     }
 
 
@@ -223,12 +583,14 @@ public class ObjectManager {
      * @param xmlFile the specified XML file
      */
     public void instantiateAll(String xmlFile) {
+        levelFile = xmlFile;
         try {
             XMLParser.parseXML(xmlFile, this);
         } catch (ParserConfigurationException | IOException | SAXException exception) {
             exception.printStackTrace();
         }
         numMandatoryItems = getMandatoryItems().size();
+        levelItems.putAll(items);
         pacActor = new PacActor(this);
         if (pacActorLocations.size() > 0) {
             pacActor.setInitLocation(pacActorLocations.get(0));
@@ -254,6 +616,35 @@ public class ObjectManager {
             monster.setStopMoving(false);
     }
 
+    /**
+     * Act every live actor once, the monsters first and PacMan last, checking whether PacMan collides with
+     * a monster after each; a single tick of the game, played the same way by the windowed game and by
+     * headless instances.
+     * <p>
+     * The monsters act in two phases: every monster decides its move against the game as it was at the
+     * start of the tick, then the moves are applied one monster after another, in the manager's order.
+     * Monsters never block each other, so no two moves conflict, and applying them in a fixed order keeps
+     * the game callback's log and every other effect of a move deterministic. As no decision reads what
+     * another monster decides, levels with many monsters decide their moves in parallel, which plays the
+     * same game as deciding them in turn.
+     * @return true if PacMan has collided with a monster, false if otherwise
+     * @see    Monster#decideMove()
+     */
+    protected boolean actLiveActors() {
+        Location[] moves = new Location[monsters.size()];
+        if (moves.length >= PARALLEL_MONSTERS && ! isSimulation)
+            IntStream.range(0, moves.length).parallel().forEach(i -> moves[i] = monsters.get(i).decideMove());
+        else
+            for (int i = 0; i < moves.length; i++)
+                moves[i] = monsters.get(i).decideMove();
+        for (int i = 0; i < moves.length; i++)
+            monsters.get(i).applyMove(moves[i]);
+        if (pacActor.collideMonster())
+            return true;
+        pacActor.act();
+        return pacActor.collideMonster();
+    }
+
 
     /**
      * Get the killed pacActor; naturally called when the game is over and pacActor was killed.
@@ -261,7 +652,7 @@ public class ObjectManager {
      * @return the killed pacActor
      */
     protected Actor getKilledPacActor() {
-        killedPacActor = new Actor(PacActor.KILLED_SPRITE);
+        killedPacActor = new Actor(SpriteCache.get(PacActor.KILLED_SPRITE).image());
         return killedPacActor;
     }
 
@@ -277,13 +668,15 @@ public class ObjectManager {
         for (Monster monster : monsters)
             monster.removeSelf();
         monsters.clear();
-        for (Map.Entry<HashLocation, Item> entry : items.entrySet())
-            entry.getValue().removeSelf();
         items.clear();
+        levelItems.clear();
         for (Map.Entry<HashLocation, Portal> entry : portals.entrySet())
             entry.getValue().removeSelf();
         portals.clear();
         pacActorLocations.clear();
         walls.clear();
+        navigationGrid = null;
+        replayRecorder = null;
+        commands.clear();
     }
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package game;
 import game.utility.PropertiesLoader;
 
 import ch.aplu.jgamegrid.Location;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -29,6 +32,17 @@ public class Orion extends Monster {
     private final HashMap<HashLocation, Boolean> goldVisited = new HashMap<>();
     private final HashMap<HashLocation, Boolean> goldPacmanAte = new HashMap<>();
 
+    /**
+     * Orion's own state, saved as part of the game state.
+     * @param destination    the gold location Orion is walking to
+     * @param hasDestination whether Orion has a destination
+     * @param goldVisited    the gold locations visited in the current walk cycle
+     * @param goldPacmanAte  the gold locations PacMan has eaten
+     */
+    private record TypeState(HashLocation destination, boolean hasDestination,
+                             HashMap<HashLocation, Boolean> goldVisited,
+                             HashMap<HashLocation, Boolean> goldPacmanAte) {}
+
     /**
      * Orion constructor
      * @param manager stores locations of all game objects
@@ -51,6 +65,91 @@ public class Orion extends Monster {
         return goldPacmanAte;
     }
 
+    /**
+     * Save Orion's destination and gold maps. Overridden from Monster.
+     * @return Orion's state
+     * @see    GameState
+     */
+    @Override
+    protected Object saveTypeState() {
+        return new TypeState(currDestination, hasDestination,
+                             new HashMap<>(goldVisited), new HashMap<>(goldPacmanAte));
+    }
+
+    /**
+     * Restore Orion's destination and gold maps. The maps are updated in place, so they keep iterating
+     * in the same order, which Orion's random choices depend on. Overridden from Monster.
+     * @param state Orion's state, as saved by <code> saveTypeState() </code>
+     * @see   GameState
+     */
+    @Override
+    protected void restoreTypeState(Object state) {
+        TypeState saved = (TypeState) state;
+        currDestination = saved.destination();
+        hasDestination  = saved.hasDestination();
+        goldVisited.replaceAll((location, visited) -> saved.goldVisited().get(location));
+        goldPacmanAte.replaceAll((location, eaten) -> saved.goldPacmanAte().get(location));
+    }
+
+    /**
+     * Write Orion's state, as saved by <code> saveTypeState() </code>, to a binary stream.
+     * @param out   the stream
+     * @param state Orion's state
+     * @throws IOException if the stream cannot be written
+     * @see    GameState#write(DataOutput)
+     */
+    protected static void writeTypeState(DataOutput out, Object state) throws IOException {
+        TypeState saved = (TypeState) state;
+        out.writeBoolean(saved.hasDestination());
+        out.writeBoolean(saved.destination() != null);
+        if (saved.destination() != null)
+            GameState.writeLocation(out, saved.destination().location());
+        writeGoldMap(out, saved.goldVisited());
+        writeGoldMap(out, saved.goldPacmanAte());
+    }
+
+    /**
+     * Read Orion's state written by <code> writeTypeState </code>.
+     * @param in the stream
+     * @return   Orion's state
+     * @throws IOException if the stream cannot be read
+     */
+    protected static Object readTypeState(DataInput in) throws IOException {
+        boolean hasDestination   = in.readBoolean();
+        HashLocation destination = in.readBoolean() ? new HashLocation(GameState.readLocation(in)) : null;
+        HashMap<HashLocation, Boolean> goldVisited   = readGoldMap(in);
+        HashMap<HashLocation, Boolean> goldPacmanAte = readGoldMap(in);
+        return new TypeState(destination, hasDestination, goldVisited, goldPacmanAte);
+    }
+
+    /**
+     * Write a map of gold locations to flags, as its size then each location with its flag.
+     * @param out  the stream
+     * @param gold the map
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeGoldMap(DataOutput out, HashMap<HashLocation, Boolean> gold) throws IOException {
+        GameState.writeVarInt(out, gold.size());
+        for (HashMap.Entry<HashLocation, Boolean> entry : gold.entrySet()) {
+            GameState.writeLocation(out, entry.getKey().location());
+            out.writeBoolean(entry.getValue());
+        }
+    }
+
+    /**
+     * Read a map of gold locations to flags written by <code> writeGoldMap </code>.
+     * @param in the stream
+     * @return   the map
+     * @throws IOException if the stream cannot be read
+     */
+    private static HashMap<HashLocation, Boolean> readGoldMap(DataInput in) throws IOException {
+        int size = GameState.readVarInt(in);
+        HashMap<HashLocation, Boolean> gold = new HashMap<>();
+        for (int i = 0; i < size; i++)
+            HashLocation.put(gold, GameState.readLocation(in), in.readBoolean());
+        return gold;
+    }
+
 
     /**
      * The Orion's movement approach in game. Overridden from Monster.
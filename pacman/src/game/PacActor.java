@@ -1,4 +1,5 @@
 package game;
+import game.utility.Metrics;
 import game.utility.PropertiesLoader;
 
 import ch.aplu.jgamegrid.*;
@@ -27,7 +28,9 @@ public class PacActor extends LiveActor implements GGKeyListener {
     // properties related to sequence of moves for pacman in auto mode
     // if pacman is in auto mode
     private boolean isAuto = false;
+    private boolean isMonteCarlo = false;
     private LinkedList<Location> movesNext = new LinkedList<>();
+    private Autopilot planner = null;
 
 
     /**
@@ -49,34 +52,98 @@ public class PacActor extends LiveActor implements GGKeyListener {
     }
 
     /**
-     * Set the random seed for PacMan.
+     * Get whether PacMan runs in auto mode or player mode.
+     * @return true if PacMan runs in auto mode, false if otherwise
+     */
+    protected boolean isAuto() {
+        return isAuto;
+    }
+
+    /**
+     * Set whether auto mode is driven by Monte-Carlo tree search, or by the item tour.
+     * @param monteCarlo true for Monte-Carlo tree search, false if otherwise
+     * @see   MonteCarloPlanner
+     * @see   AsyncPlanner
+     */
+    protected void setMonteCarlo(boolean monteCarlo) {
+        isMonteCarlo = monteCarlo;
+    }
+
+    /**
+     * Set the random seed for PacMan, whose random choices are drawn from the seed's first stream.
      * @param seed specified seed
      */
     @Override
     protected void setSeed(int seed) {
-        getRandomizer().setSeed(seed);
+        getRandomizer().setSeed(seed, getHashIndex());
+    }
+
+    /**
+     * Get PacMan's current score.
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the number of pills and gold pieces PacMan has eaten.
+     * @return the number of items eaten
+     */
+    protected int getNbPills() {
+        return nbPills;
+    }
+
+    /**
+     * Restore PacMan's score and number of items eaten; used to restore the game state. Any moves planned
+     * in auto mode are dropped, since they were planned for another state.
+     * @param score   the score
+     * @param nbPills the number of items eaten
+     * @see   GameState
+     */
+    protected void restoreProgress(int score, int nbPills) {
+        this.score   = score;
+        this.nbPills = nbPills;
+        movesNext = new LinkedList<>();
+        planner   = null;
     }
 
 
     /**
-     * Key Pressed so no more repeat keys, no more infinite loop of keyboard register pain.
+     * Key Pressed so no more repeat keys, no more infinite loop of keyboard register pain. The key is posted
+     * to the game's command queue and applied by the simulation thread, so it always falls between two ticks
+     * of the game, and it is recorded if the game is. The time it is received at is kept with it, to
+     * measure how long it takes to be applied and shown.
      * @param keyEvent the key event
      * @return         if key is pressed
+     * @see   CommandQueue
      */
     @Override
     public boolean keyPressed(KeyEvent keyEvent) {
         if (isAuto || isRemoved()) return false;
-        Location next;
-        switch(keyEvent.getKeyCode()) {
-            case KeyEvent.VK_LEFT   -> setDirection(Location.WEST);
-            case KeyEvent.VK_UP     -> setDirection(Location.NORTH);
-            case KeyEvent.VK_RIGHT  -> setDirection(Location.EAST);
-            case KeyEvent.VK_DOWN   -> setDirection(Location.SOUTH);
-        }
+        long receivedAt = System.nanoTime();
+        Metrics.INPUT_DISPATCH.record(Math.max(0, System.currentTimeMillis() - keyEvent.getWhen()) * 1_000_000);
+        int direction = switch(keyEvent.getKeyCode()) {
+            case KeyEvent.VK_LEFT   -> Location.WEST.getDirection();
+            case KeyEvent.VK_UP     -> Location.NORTH.getDirection();
+            case KeyEvent.VK_RIGHT  -> Location.EAST.getDirection();
+            case KeyEvent.VK_DOWN   -> Location.SOUTH.getDirection();
+            default                 -> getIntDirection();
+        };
+        Game game = getManager().getGame();
+        getManager().getCommands().post(() -> game.input(direction, receivedAt));
+        return true;
+    }
+
+    /**
+     * Turn PacMan to a direction and take a step that way if it can, as a key press of the player does.
+     * @param direction the direction, in degrees
+     */
+    protected void turn(int direction) {
+        setDirection(direction);
         // torus-effect
-        next = nextLocation();
+        Location next = nextLocation();
         if (canMove(next)) moveWithVisited(next);
-        return true;
     }
 
 
@@ -96,18 +163,36 @@ public class PacActor extends LiveActor implements GGKeyListener {
      */
     @Override
     public void act() {
+        long start = System.nanoTime();
         show(idSprite);
         idSprite++;
         if (idSprite == NUM_SPRITES)
             idSprite = 0;
         if (isAuto) {
-            if (movesNext.size() == 0 && getManager().getNumMandatoryItems() > 0) {
-                PathFinder finder = new PathFinder();
-                movesNext = finder.idsSingle(this);
-            }
+            planMoves();
             moveApproach();
         }
         getGameCallback().pacManLocationChanged(getLocation(), score, nbPills);
+        if (! getManager().isSimulation())
+            Metrics.PACMAN_ACT.recordSince(start);
+    }
+
+    /**
+     * Plan the next moves for auto mode. Planning runs in the background, so PacMan keeps following its
+     * current moves until the new plan is taken in a few moves later, or takes a cheap fallback move if it
+     * has none; in a headless game, whose thread has nothing else to do, the item tour is planned on that
+     * thread instead.
+     * @see Autopilot
+     */
+    private void planMoves() {
+        if (planner == null) {
+            ObjectManager manager = getManager();
+            if (isMonteCarlo)
+                planner = new MonteCarloPlanner(manager);
+            else
+                planner = manager.isHeadless() ? new AsyncPlanner(manager, Runnable::run) : new AsyncPlanner(manager);
+        }
+        movesNext = planner.nextMoves(getLocation(), movesNext);
     }
 
     /**
@@ -127,7 +212,14 @@ public class PacActor extends LiveActor implements GGKeyListener {
     @Override
     public void moveApproach() {
         if (movesNext.isEmpty()) return;
-        Location next = movesNext.removeFirst();
+        stepTo(movesNext.removeFirst());
+    }
+
+    /**
+     * Take a single step to an adjacent location, facing the way of the step and recording it as visited.
+     * @param next the next location to move to
+     */
+    protected void stepTo(Location next) {
         int direction = getDirectionFromNext(next);
         setDirection(direction);
         moveWithVisited(next);
@@ -150,13 +242,17 @@ public class PacActor extends LiveActor implements GGKeyListener {
             if (! (item instanceof Ice)) nbPills++;
             score += item.getScore();
             getManager().decrementNumPillAndGold(item);
+            if (! manager.isSimulation())
+                Metrics.ITEMS_EATEN.increment();
 
             // signals the manager and removes itself
             item.signalManager(manager);
-            getBackground().fillCell(location, Game.COLOR_SPACE);
+            if (! isDetached())
+                getBackground().fillCell(location, Game.COLOR_SPACE);
             getGameCallback().pacManEatPillsAndItems(location, item.getName());
             item.removeItem(manager);
         }
+        if (isDetached()) return;
         String title = Game.RUN_TITLE + score;
         getGameGrid().setTitle(title);
     }
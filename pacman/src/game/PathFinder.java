@@ -1,209 +1,390 @@
 package game;
-import static game.LiveActor.*;
+import game.utility.GameEvents;
+import game.utility.Metrics;
 
 import ch.aplu.jgamegrid.Location;
 import java.util.*;
-import java.util.stream.Collectors;
 
 
 /**
  * PathFinder class with various different pathfinding algorithms serving different purposes.
  * This includes an optimal pathfinding algorithm, IDS, to search PacActor's next move during
  * auto-mode, as well as a level checking algorithm, DFS, to obtain all the reachable space.
+ * <p>
+ * The IDS is bounded by a search budget on depth, nodes expanded and time, and items that cannot be
+ * reached at all are left out of the search, so it always terminates. The node cap normally ends a search
+ * first, so a search ends alike for the same game state; the time cap is only a safety net for slow
+ * machines, and is logged whenever it ends a search. When no item is found within the budget, it falls
+ * back to a single exploratory move instead.
+ * <p>
+ * The search state, PacMan's location and the remaining items, is tracked by an incremental Zobrist
+ * hash kept up to date by every move and undo, so that states already found to be dead ends at a given
+ * depth are pruned through a transposition table instead of being searched again.
+ * <p>
+ * Searches run on the navigation grid's packed cell ids rather than on actors and locations. PacMan's
+ * cell and the items present are plain fields and arrays, and every move is recorded in a primitive undo
+ * log, so the actor itself is never moved, and a search allocates nothing but the path it returns. All
+ * buffers are allocated once per level, when a new PacMan is first searched for.
+ * @see NavigationGrid
+ * @see TranspositionTable
  */
 public class PathFinder {
-    // the queue of proceeded actions (for undoing purposes)
-    private final LinkedList<Action> actionQueue = new LinkedList<>();
+    // default search budget
+    public static final SearchBudget DEFAULT_BUDGET = new SearchBudget(256, 1_000_000L, 50_000_000L);
+    private static final int TIME_CHECK_INTERVAL = 0xFF;
+    private static final int TABLE_LOG2_SIZE = 16;
+
+    // the level searched on, built for a single PacMan since walls and portals never change within a level
+    private PacActor searchedFor = null;
+    private NavigationGrid grid = null;
+
+    // state of the search: PacMan's cell and the mandatory items still present
+    private int pacCell;
+    private boolean[] items;
+    private int numItems;
+
+    // the items as last loaded from the game, with their hash and how many were left out
+    private int loadedCount = -1;
+    private int loadedItems;
+    private long loadedHash;
+    private int numUnreachable;
+
+    // log of moves taken, each packing the cell moved from and whether an item was eaten there
+    private final int[] undoLog;
+    private int numMoves = 0;
+
+    // cells reachable from PacMan, the stack to compute them with, and the candidates to explore
+    private boolean[] reachable;
+    private int[] stack;
+    private final int[] choices = new int[NavigationGrid.NUM_MOVES];
+
+    // hash of the current search state, and the dead ends found so far
+    private final TranspositionTable table = new TranspositionTable(TABLE_LOG2_SIZE);
+    private long stateHash = 0;
+
+    // the budget, and the state of the current search
+    private final SearchBudget budget;
+    private long numNodes;
+    private long deadline;
+    private boolean exhausted;
+    private SearchStats lastStats = null;
 
-    // the map of all hash actors
-    private HashMap<HashLocation, Item> hashActors = new HashMap<>();
+    /**
+     * The bounds of a single search.
+     * @param maxDepth the maximum depth to deepen to
+     * @param maxNodes the maximum number of nodes to expand, over all depths
+     * @param maxNanos the maximum time to search for, in nanoseconds
+     */
+    public record SearchBudget(int maxDepth, long maxNodes, long maxNanos) {}
 
-    // structure for an action taken (for caching to optimize undo)
-    private record Action(Location previous, Location next, Item itemAtNext) {}
+    /**
+     * How a search ended.
+     * <ul>
+     *     <li>FOUND       - a path to an item was found
+     *     <li>EXHAUSTED   - the budget ran out before an item was found
+     *     <li>UNREACHABLE - no remaining item can be reached at all
+     * </ul>
+     */
+    public enum Outcome {
+        FOUND, EXHAUSTED, UNREACHABLE
+    }
+
+    /**
+     * Statistics of a single search.
+     * @param outcome     how the search ended
+     * @param depth       the last depth searched
+     * @param nodes       the number of nodes expanded
+     * @param nanos       the time taken, in nanoseconds
+     * @param unreachable the number of items left out for being unreachable
+     */
+    public record SearchStats(Outcome outcome, int depth, long nodes, long nanos, int unreachable) {}
 
 
     /**
-     * Location path, includes the location itself and its parent, hence forming a path.
-     * Essentially, it takes the form of a linked list.
+     * PathFinder constructor with the default search budget.
      */
-    private static class LocationPath {
-        private final Location location;
-        private LocationPath child = null;
-        private int size;
-        private int childSize;
-
-        /**
-         * Location path constructor.
-         * @param location the specified location
-         */
-        private LocationPath(Location location) {
-            this.location = location;
-            size = 1;
-            childSize = 0;
-        }
+    public PathFinder() {
+        this(DEFAULT_BUDGET);
+    }
 
-        /**
-         * Set the child for location path.
-         * @param child the specified child
-         */
-        private void setChild(LocationPath child) {
-            this.child = child;
-            size -= childSize;
-            childSize = child.size;
-            size += childSize;
-        }
+    /**
+     * PathFinder constructor.
+     * @param budget the bounds of every search
+     */
+    public PathFinder(SearchBudget budget) {
+        this.budget  = budget;
+        this.undoLog = new int[budget.maxDepth() + 1];
+    }
 
-        /**
-         * Get the path to the current location path object.
-         */
-        private LinkedList<Location> getPath() {
-            LinkedList<Location> path = new LinkedList<>();
-            LocationPath locationPath = this.child; // skip the root
-            while (locationPath != null) {
-                path.addLast(locationPath.location);
-                locationPath = locationPath.child;
-            }
-            return path;
-        }
+    /**
+     * Get the statistics of the last IDS.
+     * @return the statistics, or null if no search has been run yet
+     */
+    public SearchStats getLastStats() {
+        return lastStats;
+    }
 
-        @Override
-        public int hashCode() {
-            return new HashLocation(location).hashCode();
-        }
+    /**
+     * Get the hash of the current search state.
+     * @return the Zobrist hash of PacMan's location and the remaining items
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Get the transposition table of dead ends, for its statistics.
+     * @return the transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
     }
 
 
     /**
-     * Get all possible moves a live actor can make from their given position.
-     * @param actor the live actor
-     * @return      the list of locations live actor can move to
+     * Set up the level for a PacMan. The grid and all buffers are only built the first time a PacMan is
+     * searched for, along with the cells reachable from PacMan's location.
+     * @param pacActor the pacman actor
+     */
+    private void useLevel(PacActor pacActor) {
+        if (searchedFor == pacActor)
+            return;
+        grid      = pacActor.getManager().getNavigationGrid();
+        items     = new boolean[grid.getNumCells()];
+        reachable = new boolean[grid.getNumCells()];
+        stack     = new int[grid.getNumCells()];
+        markReachable(grid.toCell(pacActor.getLocation()));
+        table.clear();
+        searchedFor = pacActor;
+    }
+
+    /**
+     * Load the mandatory items still in the game, leaving out those that cannot be reached. They are only
+     * reloaded when their number has changed since the last search.
+     * @param manager the object manager
      */
-    private ArrayList<Location> getAllMoves(LiveActor actor) {
-        ArrayList<Location> moves = new ArrayList<>();
-        Location next;
-        double oldDirection = actor.getDirection();
-        int[] turn_angles = new int[]{RIGHT_TURN_ANGLE, LEFT_TURN_ANGLE, FORWARD_TURN_ANGLE, BACK_TURN_ANGLE};
-        for (int turnAngle : turn_angles) {
-            actor.setDirection(oldDirection);
-            actor.turn(turnAngle);
-            next = actor.nextLocation();
-            if (actor.canMove(next)) moves.add(next);
+    private void loadItems(ObjectManager manager) {
+        if (loadedCount == manager.getNumMandatoryItems())
+            return;
+        Arrays.fill(items, false);
+        loadedItems = 0;
+        loadedHash  = 0;
+        numUnreachable = 0;
+        for (Map.Entry<HashLocation, Item> entry : manager.getItems().entrySet()) {
+            if (entry.getValue() instanceof Ice)
+                continue;
+            Location location = entry.getKey().location();
+            if (! grid.inBound(location.getX(), location.getY()) || ! reachable[grid.toCell(location)]) {
+                numUnreachable++;
+                continue;
+            }
+            int cell = grid.toCell(location);
+            items[cell] = true;
+            loadedItems++;
+            loadedHash ^= TranspositionTable.itemKey(cell);
         }
-        return moves;
+        loadedCount = manager.getNumMandatoryItems();
     }
 
     /**
-     * Assigning the hash actors map for PathFinder.
-     * @param pacActor the pacman actor
+     * Depth-first search marking every cell reachable from a source cell. Since the items left out of
+     * the search depend on it, they are reloaded on the next search.
+     * @param source the source cell id
+     * @return       the number of cells reached
      */
-    private void assignActorMap(PacActor pacActor) {
-        // all hash actors, including pacman and all mandatory items
-        if (hashActors.size() == 0) {
-            hashActors = pacActor.getManager().getMandatoryItems();
-            if (! HashLocation.contain(hashActors, pacActor.getLocation()))
-                HashLocation.put(hashActors, pacActor.getLocation(), null);
+    private int markReachable(int source) {
+        Arrays.fill(reachable, false);
+        loadedCount = -1;
+        int size = 0, count = 1;
+        reachable[source] = true;
+        stack[size++] = source;
+        while (size > 0) {
+            int cell = stack[--size];
+            for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+                int next = grid.neighbour(cell, move);
+                if (next == NavigationGrid.NONE || reachable[next]) continue;
+                reachable[next] = true;
+                stack[size++] = next;
+                count++;
+            }
         }
+        return count;
     }
 
 
     /**
-     * Proceed with a move. This will update the hash actor map and the action queue.
-     * @param pacActor the pacman actor
-     * @param next     the location to move to
-     * @return         whether pacman has eaten a mandatory item
+     * Proceed with a move. This will update PacMan's cell, the items, the state hash and the undo log.
+     * @param next the cell to move to
+     * @return     whether pacman has eaten a mandatory item
      */
-    private boolean proceedMove(PacActor pacActor, Location next) {
-        if (pacActor == null || next == null)
-            return false;
-        Action action = new Action(pacActor.getLocation(), next, HashLocation.get(hashActors, next));
-        actionQueue.addFirst(action);
-
-        boolean eaten = HashLocation.delete(hashActors, next);
-        HashLocation.delete(hashActors, pacActor.getLocation());
-        pacActor.setLocation(next);
-        HashLocation.put(hashActors, next, null);
+    private boolean proceedMove(int next) {
+        boolean eaten = items[next];
+        undoLog[numMoves++] = (pacCell << 1) | (eaten ? 1 : 0);
+        if (eaten) {
+            items[next] = false;
+            numItems--;
+            stateHash ^= TranspositionTable.itemKey(next);
+        }
+        stateHash ^= TranspositionTable.pacKey(pacCell) ^ TranspositionTable.pacKey(next);
+        pacCell = next;
         return eaten;
     }
 
 
     /**
-     * Undo a move. This will return the hash actor map and the action queue to its previous state.
-     * @param pacActor the pacman actor
+     * Undo a move. This will return PacMan's cell, the items and the state hash to their previous state.
      */
-    private void undoMove(PacActor pacActor) {
-        Action action = actionQueue.removeFirst();
-        HashLocation.delete(hashActors, pacActor.getLocation());
-        pacActor.setLocation(action.previous);
-        HashLocation.delete(hashActors, action.next);
-        if (action.itemAtNext != null)
-            HashLocation.put(hashActors, action.next, action.itemAtNext);
-        HashLocation.put(hashActors, pacActor.getLocation(), null);
+    private void undoMove() {
+        int entry    = undoLog[--numMoves];
+        int previous = entry >>> 1;
+        if ((entry & 1) != 0) {
+            items[pacCell] = true;
+            numItems++;
+            stateHash ^= TranspositionTable.itemKey(pacCell);
+        }
+        stateHash ^= TranspositionTable.pacKey(pacCell) ^ TranspositionTable.pacKey(previous);
+        pacCell = previous;
     }
 
     /**
-     * Undo all actions taken so far by PathFinder.
-     * @param pacActor the pacman actor
+     * Undo all moves taken so far by PathFinder.
      */
-    private void undoAll(PacActor pacActor) {
-        while (! actionQueue.isEmpty())
-            undoMove(pacActor);
+    private void undoAll() {
+        while (numMoves > 0)
+            undoMove();
+    }
+
+    /**
+     * Get the path of the moves taken so far.
+     * @return the list of locations moved to, in order
+     */
+    private LinkedList<Location> getPath() {
+        LinkedList<Location> path = new LinkedList<>();
+        for (int i = 0; i < numMoves; i++) {
+            int cell = (i + 1 < numMoves) ? undoLog[i + 1] >>> 1 : pacCell;
+            path.addLast(grid.toLocation(cell));
+        }
+        return path;
     }
 
 
     /**
-     * DFS limited depth, utility function for IDS.
-     * @param pacActor the pacman actor
-     * @param path     the current path to reach state
-     * @param depth    the specified limited depth
-     * @return         NULL if no result, or the path to take if a result exists
+     * DFS limited depth, utility function for IDS. When an item is reached, the moves leading to it are
+     * left in the undo log.
+     * @param depth the specified limited depth
+     * @return      True if an item was reached, False if otherwise
      */
-    private LocationPath dfsLimited(PacActor pacActor, LocationPath path, int depth) {
+    private boolean dfsLimited(int depth) {
         // initial stopping conditions
-        if (hashActors.size() <= 1)
-            return path;
+        if (numItems == 0)
+            return true;
         else if (depth <= 0)
-            return null;
+            return false;
+
+        // out of budget
+        numNodes++;
+        if (numNodes > budget.maxNodes())
+            exhausted = true;
+        else if ((numNodes & TIME_CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+            exhausted = true;
+            System.err.printf("Path search stopped by its %d ms time cap after %d nodes%n",
+                              budget.maxNanos() / 1_000_000, numNodes);
+        }
+        if (exhausted)
+            return false;
+
+        // already known to be a dead end at this depth, through another path
+        if (table.contains(stateHash, depth))
+            return false;
 
         // for every possible move for pacman
-        ArrayList<Location> nextLocations = getAllMoves(pacActor);
-        for (Location next : nextLocations) {
+        int cell = pacCell;
+        for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+            int next = grid.neighbour(cell, move);
+            if (next == NavigationGrid.NONE)
+                continue;
 
             // the idea is that if it finds the closest pill to eat, that is the way
-            boolean eaten = proceedMove(pacActor, next);
-            LocationPath nextPath = new LocationPath(next);
-            path.setChild(nextPath);
-            if (eaten)
-                return path;
+            if (proceedMove(next))
+                return true;
 
             // call it recursively if only required
-            LocationPath recursivePath = dfsLimited(pacActor, nextPath, depth-1);
-            if (recursivePath != null)
-                return path;
+            if (dfsLimited(depth - 1))
+                return true;
 
             // undo only if move is not outright beneficial
-            undoMove(pacActor);
+            undoMove();
+            if (exhausted)
+                return false;
         }
-        return null;
+        table.store(stateHash, depth);
+        return false;
     }
 
 
     /**
-     * IDS for a single next path instead of the entire game
+     * IDS for a single next path instead of the entire game. The search is bounded by the budget,
+     * and falls back to an exploratory move if no item is found within it. The moves found are left
+     * in the undo log.
      * @param pacActor the pacman actor
-     * @return         the path to be taken
      */
-    public LocationPath idsSinglePath(PacActor pacActor) {
-        assignActorMap(pacActor);
-        LocationPath path = new LocationPath(pacActor.getLocation());
+    private void idsSinglePath(PacActor pacActor) {
+        long start = System.nanoTime();
+        numNodes  = 0;
+        deadline  = start + budget.maxNanos();
+        exhausted = false;
+        useLevel(pacActor);
+        loadItems(pacActor.getManager());
+        pacCell   = grid.toCell(pacActor.getLocation());
+        numItems  = loadedItems;
+        stateHash = loadedHash ^ TranspositionTable.pacKey(pacCell);
+
+        // nothing left that can be reached
+        if (numItems == 0) {
+            lastStats = new SearchStats(Outcome.UNREACHABLE, 0, 0, System.nanoTime() - start, numUnreachable);
+            explore(pacActor);
+            return;
+        }
 
-        // iteratively deepening the depth until an item is reached
+        // iteratively deepening the depth until an item is reached, or the budget runs out
         int depth = 1;
-        while (true) {
-            LocationPath curr = dfsLimited(pacActor, path, depth);
-            if (curr != null)
-                return curr;
-            depth++;
+        for (; depth <= budget.maxDepth() && ! exhausted; depth++) {
+            if (dfsLimited(depth)) {
+                Metrics.NODES_EXPANDED.add(numNodes);
+                lastStats = new SearchStats(
+                        Outcome.FOUND, depth, numNodes, System.nanoTime() - start, numUnreachable);
+                return;
+            }
+        }
+        Metrics.NODES_EXPANDED.add(numNodes);
+        lastStats = new SearchStats(
+                Outcome.EXHAUSTED, depth - 1, numNodes, System.nanoTime() - start, numUnreachable);
+        explore(pacActor);
+    }
+
+
+    /**
+     * Exploratory move taken when the search could not find any item: a move to a location not visited
+     * recently, or to a random one if all have been.
+     * @param pacActor the pacman actor
+     */
+    private void explore(PacActor pacActor) {
+        int choice = NavigationGrid.NONE;
+        int numChoices = 0;
+        for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+            int next = grid.neighbour(pacCell, move);
+            if (next == NavigationGrid.NONE)
+                continue;
+            if (pacActor.notVisited(grid.toLocation(next))) {
+                choice = next;
+                break;
+            }
+            choices[numChoices++] = next;
         }
+        if (choice == NavigationGrid.NONE && numChoices > 0)
+            choice = choices[pacActor.getRandomizer().nextInt(numChoices)];
+        if (choice != NavigationGrid.NONE)
+            proceedMove(choice);
     }
 
 
@@ -214,9 +395,22 @@ public class PathFinder {
      * @return         the list of next locations to move to
      */
     public LinkedList<Location> idsSingle(PacActor pacActor) {
-        LocationPath pathSingle = idsSinglePath(pacActor);
-        undoAll(pacActor);
-        return pathSingle.getPath();
+        GameEvents.PathSearch event = new GameEvents.PathSearch();
+        event.begin();
+        idsSinglePath(pacActor);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level       = pacActor.getManager().getLevelFile();
+            event.seed        = pacActor.getManager().getSeed();
+            event.outcome     = lastStats.outcome().name();
+            event.depth       = lastStats.depth();
+            event.nodes       = lastStats.nodes();
+            event.unreachable = lastStats.unreachable();
+            event.commit();
+        }
+        LinkedList<Location> path = getPath();
+        undoAll();
+        return path;
     }
 
 
@@ -227,34 +421,12 @@ public class PathFinder {
      * @return         the list of reachable locations
      */
     public ArrayList<Location> dfsGreedyCheck(PacActor pacActor) {
-        // keep track of the stack and visited locations
-        LinkedList<Location> stack = new LinkedList<>();
-        stack.addFirst(pacActor.getLocation());
-        HashMap<HashLocation, Boolean> visited = new HashMap<>();
-
-        // until the stack is empty
-        while (! stack.isEmpty()) {
-            Location location = stack.removeFirst();
-            proceedMove(pacActor, location);
-
-            // if location is not yet visited, mark as visited
-            if (! HashLocation.contain(visited, location)) {
-                HashLocation.put(visited, location, true);
-
-                // and add its child nodes to stack
-                ArrayList<Location> nextLocations = getAllMoves(pacActor);
-                for (Location next : nextLocations)
-                    stack.addFirst(next);
-            }
-        }
-        // undo all moves
-        undoAll(pacActor);
-
-        // return the key set of the visited map
-        return (ArrayList<Location>)
-                visited.keySet()
-                       .stream()
-                       .map(HashLocation::location)
-                       .collect(Collectors.toList());
+        useLevel(pacActor);
+        int count = markReachable(grid.toCell(pacActor.getLocation()));
+        ArrayList<Location> locations = new ArrayList<>(count);
+        for (int cell = 0; cell < grid.getNumCells(); cell++)
+            if (reachable[cell])
+                locations.add(grid.toLocation(cell));
+        return locations;
     }
 }
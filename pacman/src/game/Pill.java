@@ -1,8 +1,6 @@
 package game;
-import game.utility.PropertiesLoader;
 
 import ch.aplu.jgamegrid.GGBackground;
-import ch.aplu.jgamegrid.Location;
 import java.awt.*;
 
 
@@ -13,35 +11,28 @@ import java.awt.*;
  */
 public class Pill extends Item {
     // properties
-    private static final String DIRECTORY = PropertiesLoader.PATH + "ice.png";
     private static final int PILL_SCORE = 1;
     private static final String PILL_NAME = "pill";
 
     /**
-     * Constructor for Pill. It will set its own score, and call Item's constructor with its own
-     * sprite image directory.
+     * Constructor for Pill. It will set its own score, and call Item's constructor.
      */
     public Pill() {
-        super(DIRECTORY);
+        super();
         setScore(PILL_SCORE);
         setName(PILL_NAME);
     }
 
     /**
-     * Overridden putItem method, where ice puts itself to the game.
-     * @param bg        background of game grid
-     * @param game      the game
-     * @param location  the current gold item's location
-     * @see             GGBackground
-     * @see             Game
-     * @see             Location
+     * Overridden draw method, where pill draws itself into the background.
+     * @param bg     background of game grid
+     * @param center the center of the pill's cell, in pixels
+     * @see          GGBackground
      */
     @Override
-    public void putActor(GGBackground bg, Game game, Location location) {
+    protected void draw(GGBackground bg, Point center) {
         bg.setPaintColor(Color.white);
-        bg.fillCircle(game.toPoint(location), RADIUS);
-        game.addActor(this, location);
-        hide();
+        bg.fillCircle(center, RADIUS);
     }
 
     /**
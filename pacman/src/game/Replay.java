@@ -0,0 +1,247 @@
+package game;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Replay class, an immutable recording of a game: the seed it was played with, a hash of its level, every
+ * input of the player stamped with the tick it was applied before, and snapshots of the game state taken
+ * every so many ticks. Replaying the inputs on the level with the same seed plays the game again exactly,
+ * and seeking to any tick starts from the latest snapshot before it, so it only replays a snapshot interval
+ * at most.
+ * <p>
+ * Replays are written as compressed binary files: a header, the inputs with their ticks delta-encoded as
+ * variable-length integers, the snapshots, then the state hash of every tick, against which a replay
+ * played again is checked for any divergence.
+ * @see ReplayRecorder
+ * @see ReplayPlayer
+ * @see GameState
+ * @see HashStream
+ */
+public final class Replay {
+    // file format
+    private static final int MAGIC = 0x504D5250;
+    private static final int FORMAT_VERSION = 4;
+    public static final String EXTENSION = ".replay";
+
+    // the game played
+    private final int seed;
+    private final long levelHash;
+    private final int ticks;
+    private final int score;
+
+    // inputs and snapshots
+    private final List<Input> inputs;
+    private final int snapshotInterval;
+    private final TreeMap<Integer, GameState> snapshots;
+    // state hashes of the ticks recorded
+    private final HashStream hashes;
+
+    /**
+     * An input of the player.
+     * @param tick      the number of ticks played before the input was applied
+     * @param direction the direction PacMan was turned to, in degrees
+     */
+    public record Input(int tick, int direction) {}
+
+
+    /**
+     * Replay constructor.
+     * @param seed             the game's seed
+     * @param levelHash        the hash of the level's file
+     * @param ticks            the number of ticks played
+     * @param score            PacMan's final score
+     * @param inputs           the inputs, in order
+     * @param snapshotInterval the number of ticks between two snapshots
+     * @param snapshots        the snapshots, by the number of ticks played before them
+     * @param hashes           the state hashes of the ticks
+     */
+    protected Replay(int seed, long levelHash, int ticks, int score, List<Input> inputs,
+                     int snapshotInterval, TreeMap<Integer, GameState> snapshots, HashStream hashes) {
+        this.seed             = seed;
+        this.levelHash        = levelHash;
+        this.ticks            = ticks;
+        this.score            = score;
+        this.inputs           = List.copyOf(inputs);
+        this.snapshotInterval = snapshotInterval;
+        this.snapshots        = new TreeMap<>(snapshots);
+        this.hashes           = hashes;
+    }
+
+    /**
+     * Hash a level's file, so a replay is only ever played on the level it was recorded on.
+     * @param xmlFile the level's XML file
+     * @return        the 64-bit FNV-1a hash of the file's bytes
+     * @throws IOException if the file cannot be read
+     */
+    public static long hashLevel(String xmlFile) throws IOException {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : Files.readAllBytes(Path.of(xmlFile)))
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        return hash;
+    }
+
+
+    /**
+     * Write the replay to a file.
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(seed);
+            out.writeLong(levelHash);
+            out.writeInt(ticks);
+            out.writeInt(score);
+
+            // inputs, each tick as the ticks since the previous input
+            out.writeInt(inputs.size());
+            int previous = 0;
+            for (Input input : inputs) {
+                GameState.writeVarInt(out, input.tick() - previous);
+                out.writeShort(input.direction());
+                previous = input.tick();
+            }
+
+            // snapshots
+            out.writeInt(snapshotInterval);
+            out.writeInt(snapshots.size());
+            for (Map.Entry<Integer, GameState> entry : snapshots.entrySet()) {
+                out.writeInt(entry.getKey());
+                entry.getValue().write(out);
+            }
+            hashes.write(out);
+        }
+    }
+
+    /**
+     * Read a replay from a file.
+     * @param file the file
+     * @return     the replay
+     * @throws IOException if the file cannot be read, or is not a replay
+     */
+    public static Replay read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                throw new IOException("Not a replay of this version: " + file);
+            int seed       = in.readInt();
+            long levelHash = in.readLong();
+            int ticks      = in.readInt();
+            int score      = in.readInt();
+
+            // inputs
+            int numInputs = in.readInt();
+            ArrayList<Input> inputs = new ArrayList<>(numInputs);
+            int tick = 0;
+            for (int i = 0; i < numInputs; i++) {
+                tick += GameState.readVarInt(in);
+                inputs.add(new Input(tick, in.readShort()));
+            }
+
+            // snapshots
+            int snapshotInterval = in.readInt();
+            int numSnapshots = in.readInt();
+            TreeMap<Integer, GameState> snapshots = new TreeMap<>();
+            for (int i = 0; i < numSnapshots; i++)
+                snapshots.put(in.readInt(), GameState.read(in));
+            HashStream hashes = HashStream.read(in);
+            return new Replay(seed, levelHash, ticks, score, inputs, snapshotInterval, snapshots, hashes);
+        }
+    }
+
+
+    /**
+     * Get the index of the first input applied at or after a tick.
+     * @param tick the tick
+     * @return     the index, or the number of inputs if there is none
+     */
+    public int firstInputAt(int tick) {
+        int low = 0, high = inputs.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (inputs.get(middle).tick() < tick)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Get the latest snapshot taken at or before a tick.
+     * @param tick the tick
+     * @return     the snapshot with its tick, or null if there is none
+     */
+    public Map.Entry<Integer, GameState> snapshotBefore(int tick) {
+        return snapshots.floorEntry(tick);
+    }
+
+    /**
+     * Get the game's seed.
+     * @return the seed
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the hash of the level's file.
+     * @return the hash
+     * @see   #hashLevel(String)
+     */
+    public long getLevelHash() {
+        return levelHash;
+    }
+
+    /**
+     * Get the number of ticks played.
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get PacMan's final score.
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the inputs, in order.
+     * @return an unmodifiable view of the inputs
+     */
+    public List<Input> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Get the state hashes of the ticks recorded.
+     * @return the hash stream
+     */
+    public HashStream getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Get the number of ticks between two snapshots.
+     * @return the snapshot interval
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+}
@@ -0,0 +1,161 @@
+package game;
+import game.Game.STATUS;
+import game.utility.GameCallback;
+import game.utility.PropertiesLoader;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+
+/**
+ * ReplayPlayer class, playing a replay again headlessly, as fast as the game can be simulated. The level
+ * must be the one the replay was recorded on, which its hash ensures, and the game is played with the
+ * replay's seed whatever the properties say. Seeking to a tick restores the latest snapshot before it and
+ * plays the remaining ticks only, so it takes at most a snapshot interval, whichever way it seeks.
+ * <p>
+ * The state hash of every tick played is checked against the recording's, which tells the first tick at
+ * which the game diverged from it if the game's logic has changed since.
+ * <p>
+ * Auto mode games are played again exactly too, whether they were recorded in the windowed game, planning on
+ * background threads, or in a headless one, planning on its own thread: the planners are bounded by the work
+ * they do rather than by time, and their plans are taken in at the move after they are asked for. Snapshots
+ * do not hold the moves PacMan had planned in auto mode, so replays of auto mode games always seek from the
+ * start of the game, which keeps their seeking exact.
+ * @see Replay
+ * @see GameInstance
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private final LevelTemplate level;
+    private final GameCallback gameCallback;
+    private final boolean isAuto;
+    private GameInstance game;
+    // index of the next input to apply, and the state hashes of the ticks played
+    private int nextInput = 0;
+    private HashStream hashes = new HashStream();
+
+
+    /**
+     * Replay player constructor; the game starts at its first tick.
+     * @param replay       the replay
+     * @param xmlFile      the level's XML file
+     * @param properties   the game's properties
+     * @param gameCallback the game callback the game logs to
+     * @throws IOException if the level's file cannot be read
+     * @throws IllegalArgumentException if the replay was recorded on another level
+     */
+    public ReplayPlayer(Replay replay, String xmlFile, Properties properties, GameCallback gameCallback)
+            throws IOException, ParserConfigurationException, SAXException {
+        if (Replay.hashLevel(xmlFile) != replay.getLevelHash())
+            throw new IllegalArgumentException("Replay was recorded on another level than " + xmlFile);
+        Properties seeded = new Properties();
+        seeded.putAll(properties);
+        seeded.setProperty(PropertiesLoader.SEED, String.valueOf(replay.getSeed()));
+        this.replay       = replay;
+        this.level        = LevelTemplate.load(xmlFile, seeded);
+        this.gameCallback = gameCallback;
+        this.game         = new GameInstance(level, gameCallback);
+        this.isAuto       = game.getManager().getPacActor().isAuto();
+        game.getManager().setHashStream(hashes);
+    }
+
+
+    /**
+     * Play the game forward to a tick, applying the inputs recorded before each tick.
+     * @param tick the tick, at most the number of ticks recorded
+     * @return     the game's status
+     */
+    private STATUS advance(int tick) {
+        List<Replay.Input> inputs = replay.getInputs();
+        while (game.getSteps() < tick && game.getStatus() == STATUS.NA) {
+            while (nextInput < inputs.size() && inputs.get(nextInput).tick() == game.getSteps())
+                game.input(inputs.get(nextInput++).direction());
+            game.step();
+        }
+        return game.getStatus();
+    }
+
+    /**
+     * Seek to a tick, restoring the latest snapshot before it, or starting the game over if there is none,
+     * then playing forward.
+     * @param tick the tick, clamped to the ticks recorded
+     * @return     the game's status
+     */
+    public STATUS seek(int tick) {
+        tick = Math.max(0, Math.min(tick, replay.getTicks()));
+        Map.Entry<Integer, GameState> snapshot = isAuto ? null : replay.snapshotBefore(tick);
+        boolean ahead = game.getStatus() == STATUS.NA && game.getSteps() <= tick &&
+                        (snapshot == null || game.getSteps() >= snapshot.getKey());
+        if (! ahead) {
+            if (snapshot == null) {
+                game = new GameInstance(level, gameCallback);
+                nextInput = 0;
+                hashes = new HashStream();
+                game.getManager().setHashStream(hashes);
+            } else {
+                game.restore(snapshot.getValue(), snapshot.getKey());
+                nextInput = replay.firstInputAt(snapshot.getKey());
+                if (hashes.size() >= snapshot.getKey())
+                    hashes.truncate(snapshot.getKey());
+                else {
+                    hashes = replay.getHashes().prefix(snapshot.getKey());
+                    game.getManager().setHashStream(hashes);
+                }
+            }
+        }
+        return advance(tick);
+    }
+
+    /**
+     * Play the rest of the replay.
+     * @return the game's status at the end of the replay
+     */
+    public STATUS playToEnd() {
+        return advance(replay.getTicks());
+    }
+
+    /**
+     * Find the first tick at which the game played again diverged from the game recorded, over the ticks
+     * played; ticks skipped over by seeking to a snapshot are taken as recorded.
+     * @return the first divergent tick, or -1 if none diverged
+     * @see    HashStream
+     */
+    public int firstDivergence() {
+        return HashStream.firstDivergence(replay.getHashes(), hashes);
+    }
+
+    /**
+     * Get the game being played.
+     * @return the game instance
+     */
+    public GameInstance getGame() {
+        return game;
+    }
+
+
+    /**
+     * Play a replay from the command line, reporting how it ends and how fast it was played, or seek to a
+     * tick and report the game there.
+     * @param args the replay file, the level's XML file, the properties file, and optionally a tick
+     */
+    public static void main(String[] args) throws Exception {
+        Replay replay = Replay.read(Path.of(args[0]));
+        Properties properties = PropertiesLoader.loadPropertiesFile(args[2]);
+        ReplayPlayer player = new ReplayPlayer(replay, args[1], properties, GameCallback.silent());
+        long start = System.nanoTime();
+        STATUS status = (args.length > 3) ? player.seek(Integer.parseInt(args[3])) : player.playToEnd();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        GameInstance game = player.getGame();
+        System.out.printf("%s after %d of %d ticks, score %d (recorded %d), in %.3f s%n", status,
+                          game.getSteps(), replay.getTicks(), game.getScore(), replay.getScore(), seconds);
+        int divergence = player.firstDivergence();
+        if (divergence >= 0)
+            System.out.printf("Diverged from the recording at tick %d%n", divergence);
+    }
+}
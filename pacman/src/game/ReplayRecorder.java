@@ -0,0 +1,98 @@
+package game;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+
+/**
+ * ReplayRecorder class, recording a game as it is played, in the windowed game or in a headless one. The
+ * game tells the recorder of every input of the player as it is applied, and of the end of every tick;
+ * the recorder stamps inputs with the number of ticks played so far, records the state hash of every tick,
+ * and takes a snapshot of the game state every so many ticks, starting before the first one.
+ * <p>
+ * Inputs and ticks must never be told to the recorder at the same time, so that an input always falls
+ * between two ticks; the windowed game does so by applying inputs from its command queue between ticks.
+ * @see Replay
+ * @see GameState
+ */
+public class ReplayRecorder {
+    // default number of ticks between two snapshots
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 256;
+
+    // the game recorded
+    private final ObjectManager manager;
+    private final int seed;
+    private final long levelHash;
+
+    // inputs and snapshots so far
+    private final ArrayList<Replay.Input> inputs = new ArrayList<>();
+    private final int snapshotInterval;
+    private final TreeMap<Integer, GameState> snapshots = new TreeMap<>();
+    private GameState lastSnapshot = null;
+    private final HashStream hashes = new HashStream();
+    private int ticks = 0;
+
+
+    /**
+     * Replay recorder constructor; takes the first snapshot, so it must be made once the game is set up
+     * and before it is played.
+     * @param manager          the object manager of the game
+     * @param xmlFile          the level's XML file
+     * @param snapshotInterval the number of ticks between two snapshots
+     * @throws IOException if the level's file cannot be read
+     */
+    public ReplayRecorder(ObjectManager manager, String xmlFile, int snapshotInterval) throws IOException {
+        this.manager          = manager;
+        this.seed             = manager.getSeed();
+        this.levelHash        = Replay.hashLevel(xmlFile);
+        this.snapshotInterval = snapshotInterval;
+        snapshot();
+    }
+
+    /**
+     * Record an input of the player, applied before the next tick.
+     * @param direction the direction PacMan was turned to, in degrees
+     */
+    public void input(int direction) {
+        inputs.add(new Replay.Input(ticks, direction));
+    }
+
+    /**
+     * Record the end of a tick with its state hash, taking a snapshot if one is due.
+     * @param tickHash the hash of the tick
+     * @see   StateHash#tick(ObjectManager)
+     */
+    public void endTick(long tickHash) {
+        hashes.record(tickHash);
+        ticks++;
+        if (ticks % snapshotInterval == 0)
+            snapshot();
+    }
+
+    /**
+     * Take a snapshot of the game state.
+     */
+    private void snapshot() {
+        GameState state = GameState.of(manager, lastSnapshot);
+        lastSnapshot = state;
+        snapshots.put(ticks, state);
+    }
+
+    /**
+     * Get the number of ticks recorded.
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get the replay of the game recorded so far.
+     * @return the replay
+     */
+    public Replay toReplay() {
+        return new Replay(seed, levelHash, ticks, manager.getPacActor().getScore(), inputs,
+                          snapshotInterval, snapshots, hashes.prefix(ticks));
+    }
+}
@@ -0,0 +1,329 @@
+package game;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+
+/**
+ * RoutePlanner class which plans the order in which PacMan visits every remaining gold piece and pill
+ * during auto-mode, instead of greedily heading to whichever item happens to be the nearest.
+ * <p>
+ * The shortest distance between every pair of mandatory items is precomputed once per level on the
+ * navigation grid, which keeps it for every planner of the level. An open tour is then built from PacMan's position with the nearest neighbour heuristic,
+ * and refined with 2-opt and Or-opt moves until no move improves it, or a budget of candidate moves
+ * evaluated runs out. When items are eaten, they are simply dropped from the tour, which can only shorten
+ * it, and the remaining tour is refined again with a much smaller budget.
+ * <p>
+ * Budgets count the work done rather than the time taken, so the same world always gets the same tour,
+ * however fast the machine is and whichever thread plans it.
+ * <p>
+ * Levels with more items than the distance matrix allows fall back to heading to the nearest item, found
+ * with a single breadth-first search.
+ * <p>
+ * The planner only reads world snapshots, so it can run off the simulation thread, as long as a single
+ * thread uses it at a time.
+ * @see NavigationGrid
+ * @see WorldSnapshot
+ * @see PacActor
+ */
+public class RoutePlanner {
+    // budgets for refining the tour, in candidate moves evaluated
+    private static final long PLAN_BUDGET = 20_000_000L;
+    private static final long REPLAN_BUDGET = 1_000_000L;
+
+    // planning limits
+    private static final int MAX_MATRIX_ITEMS = 2048;
+    private static final int MAX_SEGMENT_LENGTH = 3;
+    private static final int INFINITY = NavigationGrid.UNREACHABLE;
+    private static final int START = -1;
+
+    // the level
+    private final NavigationGrid grid;
+
+    // scratch arrays for breadth-first searches, where parents are only ever set during a search
+    private final int[] distances;
+    private final int[] parents;
+    private final int[] queue;
+
+    // the mandatory items, indexed in the order they were collected
+    private int numItems;
+    private int[] itemCells;
+
+    // pairwise distances, shared with every planner of the level, and the distances from PacMan's cell
+    private int[] matrix;
+    private int[] startDistances;
+
+    // the tour, as item indices in the order they are to be visited
+    private int[] tour;
+    private int[] buffer;
+    private int tourSize;
+    private boolean planned = false;
+
+    // candidate moves left to evaluate in the current refinement
+    private long budget;
+
+
+    /**
+     * Route planner constructor.
+     * @param grid the navigation grid
+     * @see   NavigationGrid
+     */
+    public RoutePlanner(NavigationGrid grid) {
+        this.grid      = grid;
+        this.distances = new int[grid.getNumCells()];
+        this.parents   = new int[grid.getNumCells()];
+        this.queue     = new int[grid.getNumCells()];
+        Arrays.fill(parents, NavigationGrid.NONE);
+    }
+
+
+    /**
+     * Get the path to the next item of the tour. The tour is planned on the first call, and on later calls
+     * the items that have been eaten since are dropped before the remaining tour is refined again.
+     * @param snapshot the world snapshot
+     * @return         the list of next locations to move to, empty if no item is reachable
+     */
+    public LinkedList<Location> nextPath(WorldSnapshot snapshot) {
+        int start = snapshot.getPacCell();
+        if (! planned)
+            plan(snapshot);
+        else if (pruneEaten(snapshot) && matrix != null) {
+            updateStartDistances(start);
+            optimise(REPLAN_BUDGET);
+        }
+
+        // too many items for a tour, so just head to the nearest one
+        if (matrix == null) {
+            int nearest = nearestItem(snapshot);
+            return (nearest == NavigationGrid.NONE)
+                    ? new LinkedList<>()
+                    : grid.shortestPath(start, itemCells[nearest], parents, queue);
+        }
+        if (tourSize == 0)
+            return new LinkedList<>();
+        return grid.shortestPath(start, itemCells[tour[0]], parents, queue);
+    }
+
+
+    /**
+     * Plan the tour from scratch: collect the items, get their pairwise distances from the grid, then build
+     * and refine the tour.
+     * @param snapshot the world snapshot
+     */
+    private void plan(WorldSnapshot snapshot) {
+        planned = true;
+        numItems = snapshot.getNumItems();
+        itemCells = new int[numItems];
+        for (int i = 0; i < numItems; i++)
+            itemCells[i] = snapshot.getItemCell(i);
+        if (numItems > MAX_MATRIX_ITEMS)
+            return;
+
+        matrix = grid.distanceMatrix(itemCells);
+        startDistances = new int[numItems];
+        updateStartDistances(snapshot.getPacCell());
+
+        // build the tour, then refine it
+        tour = new int[numItems];
+        buffer = new int[numItems];
+        nearestNeighbourTour();
+        optimise(PLAN_BUDGET);
+    }
+
+    /**
+     * Recompute the distances from PacMan's current cell to every item.
+     * @param start PacMan's cell
+     */
+    private void updateStartDistances(int start) {
+        grid.distancesFrom(start, distances, queue);
+        for (int i = 0; i < numItems; i++) {
+            int distance = distances[itemCells[i]];
+            startDistances[i] = (distance == NavigationGrid.NONE) ? INFINITY : distance;
+        }
+    }
+
+    /**
+     * Get the distance between 2 stops of the tour.
+     * @param from the item index, or <code> START </code> for PacMan's cell
+     * @param to   the item index
+     * @return     the distance
+     */
+    private int distance(int from, int to) {
+        return (from == START) ? startDistances[to] : matrix[from * numItems + to];
+    }
+
+
+    /**
+     * Build the initial tour by always going to the nearest item not yet in the tour. Items that are
+     * unreachable from PacMan are left out of the tour entirely.
+     */
+    private void nearestNeighbourTour() {
+        boolean[] inTour = new boolean[numItems];
+        tourSize = 0;
+        int current = START;
+        while (true) {
+            int nearest = START;
+            int minDistance = INFINITY;
+            for (int i = 0; i < numItems; i++)
+                if (! inTour[i] && distance(current, i) < minDistance) {
+                    minDistance = distance(current, i);
+                    nearest = i;
+                }
+            if (nearest == START)
+                return;
+            inTour[nearest] = true;
+            tour[tourSize++] = nearest;
+            current = nearest;
+        }
+    }
+
+    /**
+     * Drop all items of the tour that have been eaten.
+     * @param snapshot the world snapshot
+     * @return         True if any item was dropped
+     */
+    private boolean pruneEaten(WorldSnapshot snapshot) {
+        if (matrix == null)
+            return false;
+        int size = 0;
+        for (int i = 0; i < tourSize; i++)
+            if (snapshot.hasItem(itemCells[tour[i]]))
+                tour[size++] = tour[i];
+        boolean pruned = size != tourSize;
+        tourSize = size;
+        return pruned;
+    }
+
+    /**
+     * Get the item nearest to PacMan that is still in the game; used when there are too many items
+     * for a tour.
+     * @param snapshot the world snapshot
+     * @return         the item index, or <code> NONE </code> if no item is reachable
+     */
+    private int nearestItem(WorldSnapshot snapshot) {
+        grid.distancesFrom(snapshot.getPacCell(), distances, queue);
+        int nearest = NavigationGrid.NONE;
+        int minDistance = INFINITY;
+        for (int i = 0; i < numItems; i++) {
+            int distance = distances[itemCells[i]];
+            if (distance != NavigationGrid.NONE && distance < minDistance && snapshot.hasItem(itemCells[i])) {
+                minDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+
+    /**
+     * Refine the tour with 2-opt and Or-opt moves until neither improves it, or the budget runs out.
+     * @param budget the number of candidate moves that may be evaluated
+     */
+    private void optimise(long budget) {
+        this.budget = budget;
+        boolean improved = true;
+        while (improved && this.budget > 0) {
+            improved = twoOpt();
+            improved |= orOpt();
+        }
+    }
+
+    /**
+     * A pass of 2-opt, reversing a section of the tour whenever that shortens it. Distances need not
+     * be symmetric because of portals, so the cost of the reversed section itself is accounted for.
+     * @return True if the tour was improved
+     */
+    private boolean twoOpt() {
+        boolean improved = false;
+        for (int i = 0; i < tourSize - 1; i++) {
+            if (budget <= 0)
+                return improved;
+            budget -= tourSize - i - 1;
+            int previous = (i == 0) ? START : tour[i - 1];
+            long forward = 0, reverse = 0;
+            for (int j = i + 1; j < tourSize; j++) {
+                forward += distance(tour[j - 1], tour[j]);
+                reverse += distance(tour[j], tour[j - 1]);
+                long outBefore = (j + 1 < tourSize) ? distance(tour[j], tour[j + 1]) : 0;
+                long outAfter  = (j + 1 < tourSize) ? distance(tour[i], tour[j + 1]) : 0;
+                long before = distance(previous, tour[i]) + forward + outBefore;
+                long after  = distance(previous, tour[j]) + reverse + outAfter;
+                if (after < before) {
+                    for (int left = i, right = j; left < right; left++, right--) {
+                        int temp = tour[left];
+                        tour[left] = tour[right];
+                        tour[right] = temp;
+                    }
+                    improved = true;
+                    break;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * A pass of Or-opt, moving a section of up to 3 consecutive items elsewhere in the tour whenever
+     * that shortens it.
+     * @return True if the tour was improved
+     */
+    private boolean orOpt() {
+        boolean improved = false;
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            for (int i = 0; i + length <= tourSize; i++) {
+                if (budget <= 0)
+                    return improved;
+                budget -= tourSize + 1;
+                int first = tour[i];
+                int last  = tour[i + length - 1];
+                int previous = (i == 0) ? START : tour[i - 1];
+                int next = (i + length < tourSize) ? tour[i + length] : NavigationGrid.NONE;
+
+                // the gain of taking the section out
+                long gain = distance(previous, first);
+                if (next != NavigationGrid.NONE)
+                    gain += distance(last, next) - distance(previous, next);
+
+                // the cost of putting it back between 2 other stops
+                for (int position = -1; position < tourSize; position++) {
+                    if (position >= i - 1 && position < i + length)
+                        continue;
+                    int before = (position == START) ? START : tour[position];
+                    int after  = (position + 1 < tourSize) ? tour[position + 1] : NavigationGrid.NONE;
+                    long cost  = distance(before, first);
+                    if (after != NavigationGrid.NONE)
+                        cost += distance(last, after) - distance(before, after);
+                    if (cost < gain) {
+                        moveSection(i, length, position);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Move a section of the tour to right after another stop.
+     * @param start    the index of the section's first item
+     * @param length   the section's length
+     * @param position the index of the stop to put the section after, -1 to put it first
+     */
+    private void moveSection(int start, int length, int position) {
+        int size = 0;
+        if (position == START)
+            for (int k = 0; k < length; k++)
+                buffer[size++] = tour[start + k];
+        for (int i = 0; i < tourSize; i++) {
+            if (i >= start && i < start + length)
+                continue;
+            buffer[size++] = tour[i];
+            if (i == position)
+                for (int k = 0; k < length; k++)
+                    buffer[size++] = tour[start + k];
+        }
+        System.arraycopy(buffer, 0, tour, 0, tourSize);
+    }
+}
@@ -0,0 +1,165 @@
+package game;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+
+/**
+ * SafetyPlanner class keeping auto-mode PacMan out of the monsters' way. It checks PacMan's planned moves
+ * against a danger map of where monsters could be over the next few moves, and when the plan is unsafe,
+ * searches space-time for a safe path instead: a cell may only be entered at move <code> t </code> if no
+ * monster can be there by then.
+ * <p>
+ * Since the predicted danger of a cell only ever gets closer as time goes on, arriving at a cell earlier is
+ * never worse than arriving later, so the space-time search reduces to a breadth-first search labelling each
+ * cell with its earliest safe arrival. Beyond the horizon, cells are assumed to be safe.
+ * @see DangerMap
+ * @see PacActor
+ */
+public class SafetyPlanner {
+    // number of moves predicted, and the bound on cells expanded per search
+    public static final int HORIZON = 12;
+    private static final int MAX_EXPANSIONS = 4096;
+
+    // the grid and the prediction
+    private final NavigationGrid grid;
+    private final DangerMap dangerMap;
+
+    // scratch arrays for the search
+    private final int[] arrivals;
+    private final int[] parents;
+    private final int[] queue;
+
+
+    /**
+     * Safety planner constructor.
+     * @param grid the navigation grid
+     */
+    public SafetyPlanner(NavigationGrid grid) {
+        this.grid      = grid;
+        this.dangerMap = new DangerMap(grid, HORIZON);
+        this.arrivals  = new int[grid.getNumCells()];
+        this.parents   = new int[grid.getNumCells()];
+        this.queue     = new int[grid.getNumCells()];
+    }
+
+    /**
+     * Update the danger prediction; called once per move before any check.
+     * @param snapshot the world snapshot
+     * @see   WorldSnapshot
+     */
+    public void update(WorldSnapshot snapshot) {
+        dangerMap.update(snapshot);
+    }
+
+    /**
+     * Check whether it is safe to enter a cell at a given move.
+     * @param cell the cell id
+     * @param move the move at which the cell is entered, starting from 1
+     * @return     True if no monster can be on the cell by then
+     */
+    private boolean safeAt(int cell, int move) {
+        return move > dangerMap.getHorizon() || dangerMap.get(cell) > move;
+    }
+
+
+    /**
+     * Check whether a planned path is safe within the horizon. An empty path means staying still, which
+     * is only safe if no monster can reach PacMan's cell on the next move.
+     * @param pacCell PacMan's cell id
+     * @param path    the planned path
+     * @return        True if safe, False if otherwise
+     */
+    public boolean isSafe(int pacCell, List<Location> path) {
+        if (path.isEmpty())
+            return safeAt(pacCell, 1);
+        int move = 1;
+        for (Location next : path) {
+            if (move > dangerMap.getHorizon()) break;
+            if (! safeAt(grid.toCell(next), move++)) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Search for a safe path. The preferred target is the end of the planned path; failing that, the
+     * nearest mandatory item that can be reached safely; failing that, the reachable cell which monsters
+     * would take the longest to get to.
+     * @param snapshot the world snapshot the danger prediction was updated with
+     * @param planned  the planned, unsafe path
+     * @return         the safe path, or the best escape if nothing is safe
+     */
+    public LinkedList<Location> safePath(WorldSnapshot snapshot, List<Location> planned) {
+        int source = snapshot.getPacCell();
+        int target = planned.isEmpty() ? NavigationGrid.NONE : grid.toCell(planned.get(planned.size() - 1));
+        Arrays.fill(arrivals, NavigationGrid.NONE);
+
+        // breadth-first search over safe arrivals
+        int head = 0, tail = 0;
+        arrivals[source] = 0;
+        parents[source]  = source;
+        queue[tail++] = source;
+        int nearestItem = NavigationGrid.NONE;
+        int escape = source;
+        long escapeScore = Long.MIN_VALUE;
+        while (head < tail && head < MAX_EXPANSIONS) {
+            int cell = queue[head++];
+            if (cell == target) return path(source, target);
+            if (cell != source) {
+                if (nearestItem == NavigationGrid.NONE && snapshot.hasItem(cell))
+                    nearestItem = cell;
+                long score = (long) Math.min(dangerMap.get(cell), HORIZON + 1) - arrivals[cell];
+                if (score > escapeScore) {
+                    escapeScore = score;
+                    escape = cell;
+                }
+            }
+            for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+                int next = grid.neighbour(cell, move);
+                if (next == NavigationGrid.NONE || arrivals[next] != NavigationGrid.NONE) continue;
+                if (! safeAt(next, arrivals[cell] + 1)) continue;
+                arrivals[next] = arrivals[cell] + 1;
+                parents[next]  = cell;
+                queue[tail++]  = next;
+            }
+        }
+        if (nearestItem != NavigationGrid.NONE)
+            return path(source, nearestItem);
+        return (escape != source) ? path(source, escape) : bestNeighbour(source);
+    }
+
+    /**
+     * Build the path found by the last search.
+     * @param source the source cell id
+     * @param target the target cell id
+     * @return       the list of locations to move to
+     */
+    private LinkedList<Location> path(int source, int target) {
+        LinkedList<Location> path = new LinkedList<>();
+        for (int cell = target; cell != source; cell = parents[cell])
+            path.addFirst(grid.toLocation(cell));
+        return path;
+    }
+
+    /**
+     * When no move is safe at all, take the move monsters would take the longest to reach.
+     * @param source PacMan's cell
+     * @return       a single move, or no move if PacMan is boxed in
+     */
+    private LinkedList<Location> bestNeighbour(int source) {
+        LinkedList<Location> path = new LinkedList<>();
+        int best = NavigationGrid.NONE;
+        for (int move = 0; move < NavigationGrid.NUM_MOVES; move++) {
+            int next = grid.neighbour(source, move);
+            if (next != NavigationGrid.NONE &&
+                (best == NavigationGrid.NONE || dangerMap.get(next) > dangerMap.get(best)))
+                best = next;
+        }
+        if (best != NavigationGrid.NONE && dangerMap.get(best) > dangerMap.get(source))
+            path.add(grid.toLocation(best));
+        return path;
+    }
+}
@@ -0,0 +1,105 @@
+package game;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.ArrayList;
+import java.util.Map;
+
+
+/**
+ * StateHash class, the 64-bit Zobrist hash of a game's state: the XOR of a key for every live actor on its
+ * cell and for every item still present, kept up to date by the object manager with one XOR per change as
+ * actors move and items are eaten. The effects on the monsters, whose counters change on every act anyway,
+ * are folded in once per tick, along with the score, to give the hash of each tick.
+ * <p>
+ * Keys are derived from what they stand for with the SplitMix64 finaliser, as the transposition table's
+ * are, so that hashes are comparable across runs and machines without any table of random keys.
+ * @see HashStream
+ * @see TranspositionTable
+ */
+public final class StateHash {
+    // kinds of keys, so that keys of different kinds never coincide
+    private static final long ACTOR = 1L << 60;
+    private static final long ITEM = 2L << 60;
+    private static final long EFFECT = 3L << 60;
+    private static final long SCORE = 4L << 60;
+
+    private StateHash() {}
+
+
+    /**
+     * Get the key of a live actor standing on a cell.
+     * @param index    the actor's index: 0 for PacMan, and 1 onwards for the monsters, in order
+     * @param location the cell's location, or null if the actor is nowhere yet
+     * @return         the key
+     */
+    public static long actorKey(int index, Location location) {
+        if (location == null)
+            return 0;
+        return mix(ACTOR | (long) index << 40 | cell(location));
+    }
+
+    /**
+     * Get the key of an item lying on a cell.
+     * @param location the cell's location
+     * @return         the key
+     */
+    public static long itemKey(Location location) {
+        return mix(ITEM | cell(location));
+    }
+
+    /**
+     * Get the hash of a tick: the hash of the state kept by the object manager, with the monsters' effects
+     * and PacMan's score folded in.
+     * @param manager the object manager
+     * @return        the hash of the tick
+     */
+    public static long tick(ObjectManager manager) {
+        long hash = manager.getStateHash();
+        ArrayList<Monster> monsters = manager.getMonsters();
+        for (int i = 0; i < monsters.size(); i++) {
+            Monster monster = monsters.get(i);
+            hash ^= mix(EFFECT | (long) i << 40 | (long) monster.getFrozenActs() << 20 | monster.getBoostedActs());
+        }
+        return hash ^ mix(SCORE | manager.getPacActor().getScore());
+    }
+
+    /**
+     * Compute the hash of the state kept by the object manager from scratch.
+     * @param manager the object manager
+     * @return        the hash
+     */
+    public static long of(ObjectManager manager) {
+        long hash = 0;
+        PacActor pacActor = manager.getPacActor();
+        if (pacActor != null && pacActor.hasLocation())
+            hash ^= actorKey(0, pacActor.getLocation());
+        ArrayList<Monster> monsters = manager.getMonsters();
+        for (int i = 0; i < monsters.size(); i++)
+            if (monsters.get(i).hasLocation())
+                hash ^= actorKey(i + 1, monsters.get(i).getLocation());
+        for (Map.Entry<HashLocation, Item> entry : manager.getItems().entrySet())
+            hash ^= itemKey(entry.getKey().location());
+        return hash;
+    }
+
+
+    /**
+     * Pack a location's coordinates into 40 bits.
+     * @param location the location
+     * @return         the packed coordinates
+     */
+    private static long cell(Location location) {
+        return (long) (location.getX() & 0xFFFFF) << 20 | (location.getY() & 0xFFFFF);
+    }
+
+    /**
+     * SplitMix64 finaliser, giving well spread keys.
+     * @param value the value to mix
+     * @return      the mixed value
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,134 @@
+package game;
+
+import java.util.Arrays;
+
+
+/**
+ * TranspositionTable class remembering search states already found to be dead ends, keyed on their
+ * Zobrist hash: the XOR of the key of PacMan's cell and the keys of every remaining item's cell, which
+ * searches update incrementally with one XOR per change.
+ * <p>
+ * The table is bounded: each hash maps to a bucket of 2 slots, and when both are taken by other states,
+ * the one searched to the shallower depth is replaced, since it prunes the least.
+ * @see PathFinder
+ */
+public class TranspositionTable {
+    // number of slots per bucket
+    private static final int BUCKET_SIZE = 2;
+
+    // slots, where a depth of 0 marks an empty slot
+    private final long[] hashes;
+    private final int[] depths;
+    private final int mask;
+
+    // statistics
+    private long numHits = 0;
+    private long numStores = 0;
+
+
+    /**
+     * Transposition table constructor.
+     * @param log2Size the base 2 logarithm of the number of slots
+     */
+    public TranspositionTable(int log2Size) {
+        int size = 1 << log2Size;
+        this.hashes = new long[size];
+        this.depths = new int[size];
+        this.mask   = size - BUCKET_SIZE;
+    }
+
+    /**
+     * Get the Zobrist key of PacMan standing on a cell.
+     * @param cell the cell id
+     * @return     the key of PacMan standing on the cell
+     */
+    public static long pacKey(int cell) {
+        return mix(2L * cell);
+    }
+
+    /**
+     * Get the Zobrist key of an item lying on a cell.
+     * @param cell the cell id
+     * @return     the key of an item on the cell
+     */
+    public static long itemKey(int cell) {
+        return mix(2L * cell + 1);
+    }
+
+    /**
+     * SplitMix64 finaliser, giving well spread keys without having to store a random table per level.
+     * @param value the value to mix
+     * @return      the mixed value
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /**
+     * Check whether a state is already known to be a dead end at the given depth or deeper.
+     * @param hash  the state's hash
+     * @param depth the remaining depth
+     * @return      True if the state can be pruned
+     */
+    public boolean contains(long hash, int depth) {
+        int bucket = (int) hash & mask;
+        for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++)
+            if (depths[slot] >= depth && hashes[slot] == hash) {
+                numHits++;
+                return true;
+            }
+        return false;
+    }
+
+    /**
+     * Record a state as a dead end at the given depth.
+     * @param hash  the state's hash
+     * @param depth the remaining depth searched
+     */
+    public void store(long hash, int depth) {
+        int bucket = (int) hash & mask;
+        int victim = bucket;
+        for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++) {
+            if (depths[slot] > 0 && hashes[slot] == hash) {
+                victim = slot;
+                break;
+            }
+            if (depths[slot] < depths[victim])
+                victim = slot;
+        }
+        if (hashes[victim] == hash && depths[victim] >= depth)
+            return;
+        hashes[victim] = hash;
+        depths[victim] = depth;
+        numStores++;
+    }
+
+    /**
+     * Empty the table.
+     */
+    public void clear() {
+        Arrays.fill(depths, 0);
+        numHits = 0;
+        numStores = 0;
+    }
+
+    /**
+     * Get the number of states pruned so far.
+     * @return the number of hits
+     */
+    public long getNumHits() {
+        return numHits;
+    }
+
+    /**
+     * Get the number of states recorded so far.
+     * @return the number of stores
+     */
+    public long getNumStores() {
+        return numStores;
+    }
+}
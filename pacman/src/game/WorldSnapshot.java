@@ -0,0 +1,165 @@
+package game;
+import game.Monster.MonsterType;
+
+import ch.aplu.jgamegrid.Location;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * WorldSnapshot class, an immutable copy of everything the planners need to know about the game at a given
+ * moment: PacMan's cell, the cells of the remaining gold pieces and pills, and each monster's cell, type and
+ * step size. Planning can hence run on another thread without ever touching the live actors.
+ * <p>
+ * The item set rarely changes between 2 snapshots, so it can be shared by successive snapshots until an item
+ * is eaten; it is never modified once built.
+ * @see AsyncPlanner
+ * @see NavigationGrid
+ */
+public final class WorldSnapshot {
+    // the level layout and PacMan
+    private final NavigationGrid grid;
+    private final int pacCell;
+
+    // the remaining mandatory items
+    private final int[] itemCells;
+    private final BitSet itemBits;
+
+    // the monsters
+    private final int[] monsterCells;
+    private final MonsterType[] monsterTypes;
+    private final int[] monsterStepSizes;
+
+
+    /**
+     * World snapshot constructor. The item arrays are taken as they are, and must not be modified afterwards.
+     * @param grid      the navigation grid
+     * @param pacCell   PacMan's cell id
+     * @param itemCells the cell ids of the remaining gold pieces and pills, in ascending order
+     * @param itemBits  the same cells, as a set
+     * @param monsters  the monsters
+     */
+    private WorldSnapshot(NavigationGrid grid, int pacCell, int[] itemCells, BitSet itemBits,
+                          List<Monster> monsters)
+    {
+        this.grid      = grid;
+        this.pacCell   = pacCell;
+        this.itemCells = itemCells;
+        this.itemBits  = itemBits;
+        this.monsterCells     = new int[monsters.size()];
+        this.monsterTypes     = new MonsterType[monsters.size()];
+        this.monsterStepSizes = new int[monsters.size()];
+        for (int i = 0; i < monsters.size(); i++) {
+            Monster monster = monsters.get(i);
+            Location location = monster.getLocation();
+            monsterCells[i]     = grid.inBound(location.getX(), location.getY())
+                                ? grid.toCell(location) : NavigationGrid.NONE;
+            monsterTypes[i]     = monster.getType();
+            monsterStepSizes[i] = monster.getStepSize();
+        }
+    }
+
+    /**
+     * Take a snapshot of the live game. Must be called from the simulation thread.
+     * @param grid     the navigation grid
+     * @param manager  the object manager
+     * @param previous the previous snapshot, whose item set is reused if no item has been eaten since
+     * @return         the snapshot
+     */
+    public static WorldSnapshot of(NavigationGrid grid, ObjectManager manager, WorldSnapshot previous) {
+        int[] itemCells;
+        BitSet itemBits;
+        if (previous != null && previous.getNumItems() == manager.getNumMandatoryItems()) {
+            itemCells = previous.itemCells;
+            itemBits  = previous.itemBits;
+        }
+        else {
+            itemBits = new BitSet(grid.getNumCells());
+            for (Map.Entry<HashLocation, Item> entry : manager.getItems().entrySet())
+                if (! (entry.getValue() instanceof Ice))
+                    itemBits.set(grid.toCell(entry.getKey().location()));
+            itemCells = itemBits.stream().toArray();
+        }
+        int pacCell = grid.toCell(manager.getPacActor().getLocation());
+        return new WorldSnapshot(grid, pacCell, itemCells, itemBits, manager.getMonsters());
+    }
+
+
+    /**
+     * Get the navigation grid.
+     * @return the navigation grid
+     */
+    public NavigationGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get PacMan's cell.
+     * @return the cell id
+     */
+    public int getPacCell() {
+        return pacCell;
+    }
+
+    /**
+     * Get the number of remaining gold pieces and pills.
+     * @return the number of items
+     */
+    public int getNumItems() {
+        return itemCells.length;
+    }
+
+    /**
+     * Get the cell of a remaining gold piece or pill.
+     * @param index the item index, in ascending order of cells
+     * @return      the cell id
+     */
+    public int getItemCell(int index) {
+        return itemCells[index];
+    }
+
+    /**
+     * Check whether a cell holds a gold piece or a pill.
+     * @param cell the cell id
+     * @return     True if the cell holds a mandatory item
+     */
+    public boolean hasItem(int cell) {
+        return itemBits.get(cell);
+    }
+
+    /**
+     * Get the number of monsters.
+     * @return the number of monsters
+     */
+    public int getNumMonsters() {
+        return monsterCells.length;
+    }
+
+    /**
+     * Get a monster's cell.
+     * @param index the monster index
+     * @return      the cell id, or <code> NONE </code> if the monster is off the grid
+     */
+    public int getMonsterCell(int index) {
+        return monsterCells[index];
+    }
+
+    /**
+     * Get a monster's type.
+     * @param index the monster index
+     * @return      the monster type
+     */
+    public MonsterType getMonsterType(int index) {
+        return monsterTypes[index];
+    }
+
+    /**
+     * Get a monster's step size.
+     * @param index the monster index
+     * @return      the step size
+     */
+    public int getMonsterStepSize(int index) {
+        return monsterStepSizes[index];
+    }
+}
@@ -1,5 +1,6 @@
 package game;
 import game.Game.Dimension;
+import game.utility.GameEvents;
 
 import editor.Tile;
 import org.w3c.dom.Document;
@@ -40,6 +41,8 @@ public class XMLParser {
      */
     public static void parseXML(String xmlFile, ObjectManager manager)
             throws ParserConfigurationException, SAXException, IOException {
+        GameEvents.LevelParse event = new GameEvents.LevelParse();
+        event.begin();
         // Instantiate the Factory
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         // an instance of builder to parse the specified xml file
@@ -103,6 +106,11 @@ public class XMLParser {
         }
         // After this, we want to construct the portals for the object manager
         manager.getPortalFactory().makePortals(manager.getPortals(), colors, portalLocations);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = xmlFile;
+            event.commit();
+        }
     }
 
     /**
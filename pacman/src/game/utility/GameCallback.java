@@ -4,6 +4,7 @@ import game.Monster;
 import ch.aplu.jgamegrid.Location;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 
 /**
@@ -12,7 +13,7 @@ import java.io.IOException;
  */
 public class GameCallback {
     private final String logFilePath = "Log.txt";
-    private FileWriter fileWriter = null;
+    private Writer fileWriter = null;
 
     public GameCallback() {
         try {
@@ -22,11 +23,37 @@ public class GameCallback {
         }
     }
 
+    /**
+     * Game callback which writes to a given sink instead of the log file; for games hosted alongside many
+     * others, each of which needs its own log.
+     * @param sink the writer the log is written to
+     */
+    public GameCallback(Writer sink) {
+        fileWriter = sink;
+    }
+
+    /**
+     * Game callback which writes nowhere, leaving the log untouched; for simulations of the game.
+     * @param silent unused, only distinguishes this constructor
+     */
+    private GameCallback(boolean silent) {}
+
+    /**
+     * Get a game callback which writes nowhere; for simulations of the game, whose moves must not be logged.
+     * @return the silent game callback
+     */
+    public static GameCallback silent() {
+        return new GameCallback(true);
+    }
+
     public void writeString(String str) {
+        if (fileWriter == null)
+            return;
         try {
             fileWriter.write(str);
             fileWriter.write("\n");
             fileWriter.flush();
+            Metrics.LOG_RECORDS.increment();
         } catch (IOException e) {
             e.printStackTrace();
         }
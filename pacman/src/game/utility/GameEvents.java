@@ -0,0 +1,125 @@
+package game.utility;
+
+import jdk.jfr.*;
+
+
+/**
+ * GameEvents class, the Java Flight Recorder events the game emits from its hot paths, so that recordings
+ * of real sessions show where a stall comes from, down to the level and seed being played. Every event is
+ * disabled unless a recording enables it, as the <code> properties/game.jfc </code> configuration does;
+ * a disabled event costs a single check of whether it should be committed.
+ * <p>
+ * Events are used as JFR intends: constructed, begun and ended around the work they time, and only filled
+ * in and committed if <code> shouldCommit() </code> holds, viz. if enabled and over their threshold.
+ * @see Metrics
+ */
+public final class GameEvents {
+    // category of every event
+    private static final String CATEGORY = "PacMan";
+
+    private GameEvents() {}
+
+
+    /**
+     * A simulation cycle of every actor, in the windowed game or in a headless one.
+     */
+    @Name("pacman.Tick")
+    @Label("Tick")
+    @Category(CATEGORY)
+    @Description("A simulation cycle of every actor")
+    @StackTrace(false)
+    public static final class Tick extends Event {
+        @Label("Level")
+        public String level;
+        @Label("Seed")
+        public int seed;
+    }
+
+    /**
+     * A search of the path finder for the nearest item.
+     */
+    @Name("pacman.PathSearch")
+    @Label("Path Search")
+    @Category({CATEGORY, "Planning"})
+    @Description("An iterative deepening search of the path finder")
+    @StackTrace(false)
+    public static final class PathSearch extends Event {
+        @Label("Level")
+        public String level;
+        @Label("Seed")
+        public int seed;
+        @Label("Outcome")
+        public String outcome;
+        @Label("Depth")
+        public int depth;
+        @Label("Nodes Expanded")
+        public long nodes;
+        @Label("Unreachable Items")
+        public int unreachable;
+    }
+
+    /**
+     * The parsing of a level's XML file.
+     */
+    @Name("pacman.LevelParse")
+    @Label("Level Parse")
+    @Category({CATEGORY, "Levels"})
+    @Description("The parsing of a level's XML file")
+    public static final class LevelParse extends Event {
+        @Label("Level")
+        public String level;
+    }
+
+    /**
+     * A phase of the checking of a level's validity.
+     */
+    @Name("pacman.LevelCheck")
+    @Label("Level Check")
+    @Category({CATEGORY, "Levels"})
+    @Description("A phase of the checking of a level's validity")
+    public static final class LevelCheck extends Event {
+        @Label("Level")
+        public String level;
+        @Label("Phase")
+        public String phase;
+        @Label("Valid")
+        public boolean valid;
+    }
+
+    /**
+     * The resetting of the windowed game to a level.
+     */
+    @Name("pacman.GameReset")
+    @Label("Game Reset")
+    @Category({CATEGORY, "Levels"})
+    @Description("The resetting of the game to a level")
+    public static final class GameReset extends Event {
+        @Label("Level")
+        public String level;
+        @Label("Seed")
+        public int seed;
+    }
+
+    /**
+     * The start or end of an effect of an item on a monster.
+     */
+    @Name("pacman.MonsterEffect")
+    @Label("Monster Effect")
+    @Category(CATEGORY)
+    @Description("The start or end of an effect on a monster")
+    @StackTrace(false)
+    public static final class MonsterEffect extends Event {
+        @Label("Level")
+        public String level;
+        @Label("Monster")
+        public String monster;
+        @Label("Effect")
+        public String effect;
+        @Label("Started")
+        @Description("True when the effect starts, false when it wears off")
+        public boolean started;
+        @Label("Acts")
+        @Description("Number of acts the effect lasts, when it starts")
+        public int acts;
+    }
+}
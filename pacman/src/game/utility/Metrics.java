@@ -0,0 +1,496 @@
+package game.utility;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Metrics class, the registry of every counter, gauge and latency histogram the game keeps about itself,
+ * viz. how long ticks, actors' acts, plans and level loads and checks take, how many nodes the path finder
+ * expands, and how many items are eaten and log records written. Metrics are updated from the game's hot
+ * paths without allocating or locking, so they are always on; they are read by rendering them in the
+ * Prometheus text format, or through the MBean registered under <code> MBEAN_NAME </code>.
+ * @see MetricsExporter
+ */
+public final class Metrics {
+    // name of the registry's MBean
+    public static final String MBEAN_NAME = "game:type=Metrics";
+
+    // every metric, in registration order
+    private static final ArrayList<Metric> METRICS = new ArrayList<>();
+
+    // game loop
+    public static final Histogram TICK = histogram(
+            "pacman_tick_seconds", "Time taken by a simulation cycle of all actors.");
+    public static final Histogram PACMAN_ACT = histogram(
+            "pacman_pacman_act_seconds", "Time taken by an act of PacMan.");
+    public static final Histogram MONSTER_ACT = histogram(
+            "pacman_monster_act_seconds", "Time taken by an act of a monster.");
+    public static final Histogram COMMAND_WAIT = histogram(
+            "pacman_command_wait_seconds", "Time commands such as inputs wait in the queue before they run.");
+
+    // input latency, from the key event's creation to it being handled, applied, and shown in a frame
+    public static final Histogram INPUT_DISPATCH = histogram(
+            "pacman_input_dispatch_seconds", "Time from a key event to PacMan's key listener receiving it.");
+    public static final Histogram INPUT_APPLY = histogram(
+            "pacman_input_apply_seconds", "Time from a key being received to the simulation applying it.");
+    public static final Histogram INPUT_FRAME = histogram(
+            "pacman_input_frame_seconds", "Time from a key being received to a frame showing its move.");
+
+    // planning
+    public static final Counter NODES_EXPANDED = counter(
+            "pacman_pathfinder_nodes_expanded_total", "States expanded by the path finder's searches.");
+    public static final Histogram PLAN = histogram(
+            "pacman_plan_seconds", "Time taken to plan PacMan's path in auto mode.");
+
+    // game events
+    public static final Counter ITEMS_EATEN = counter(
+            "pacman_items_eaten_total", "Items eaten by PacMan.");
+    public static final Counter LOG_RECORDS = counter(
+            "pacman_log_records_total", "Records written by game callbacks.");
+
+    // levels
+    public static final Histogram LEVEL_LOAD = histogram(
+            "pacman_level_load_seconds", "Time taken to load a level.");
+    public static final Histogram LEVEL_CHECK = histogram(
+            "pacman_level_check_seconds", "Time taken to check a level's validity.");
+
+    private Metrics() {}
+
+
+    /**
+     * A named metric, which renders itself in the Prometheus text format.
+     */
+    public abstract static class Metric {
+        private final String name;
+        private final String help;
+
+        /**
+         * Metric constructor.
+         * @param name the metric's name
+         * @param help the metric's description
+         */
+        private Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        /**
+         * Get the metric's name.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Render the metric's samples.
+         * @param out the text rendered so far
+         */
+        protected abstract void render(StringBuilder out);
+
+        /**
+         * Render the metric's header, its description and type.
+         * @param out  the text rendered so far
+         * @param type the metric's type
+         */
+        protected void header(StringBuilder out, String type) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+    }
+
+    /**
+     * A counter, which only ever goes up.
+     */
+    public static final class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Counter constructor.
+         * @param name the counter's name
+         * @param help the counter's description
+         */
+        private Counter(String name, String help) {
+            super(name, help);
+        }
+
+        /**
+         * Count a single event.
+         */
+        public void increment() {
+            count.increment();
+        }
+
+        /**
+         * Count a number of events.
+         * @param amount the number of events
+         */
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        /**
+         * Get the number of events counted.
+         * @return the count
+         */
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        protected void render(StringBuilder out) {
+            header(out, "counter");
+            out.append(getName()).append(' ').append(get()).append('\n');
+        }
+    }
+
+    /**
+     * A gauge, whose value is read from elsewhere whenever the metrics are rendered.
+     */
+    public static final class Gauge extends Metric {
+        private final LongSupplier value;
+
+        /**
+         * Gauge constructor.
+         * @param name  the gauge's name
+         * @param help  the gauge's description
+         * @param value the gauge's value
+         */
+        private Gauge(String name, String help, LongSupplier value) {
+            super(name, help);
+            this.value = value;
+        }
+
+        /**
+         * Get the gauge's current value.
+         * @return the value
+         */
+        public long get() {
+            return value.getAsLong();
+        }
+
+        @Override
+        protected void render(StringBuilder out) {
+            header(out, "gauge");
+            out.append(getName()).append(' ').append(get()).append('\n');
+        }
+    }
+
+    /**
+     * A latency histogram, counting durations into fixed buckets from a microsecond to ten seconds.
+     */
+    public static final class Histogram extends Metric {
+        // upper bounds of the buckets, in nanoseconds, and the same in seconds for rendering
+        private static final long[] BOUNDS = {
+                1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+                1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+                100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L,
+                5_000_000_000L, 10_000_000_000L
+        };
+        private static final double NANOS_PER_SECOND = 1e9;
+
+        // counts of each bucket, the last one being unbounded, and the total duration
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        private final LongAdder sum = new LongAdder();
+
+        /**
+         * Histogram constructor.
+         * @param name the histogram's name
+         * @param help the histogram's description
+         */
+        private Histogram(String name, String help) {
+            super(name, help);
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        /**
+         * Record a duration.
+         * @param nanos the duration, in nanoseconds
+         */
+        public void record(long nanos) {
+            int low = 0, high = BOUNDS.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (BOUNDS[middle] < nanos) low = middle + 1;
+                else high = middle;
+            }
+            buckets[low].increment();
+            sum.add(nanos);
+        }
+
+        /**
+         * Record the time elapsed since a given start.
+         * @param start the start, in terms of <code> System.nanoTime() </code>
+         */
+        public void recordSince(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        /**
+         * Take a copy of the durations recorded so far, which is not registered and is left as it is by later
+         * records; with <code> since </code>, it tells what was recorded over a span of time.
+         * @return the copy
+         */
+        public Histogram snapshot() {
+            Histogram copy = new Histogram(getName(), super.help);
+            for (int i = 0; i < buckets.length; i++)
+                copy.buckets[i].add(buckets[i].sum());
+            copy.sum.add(sum.sum());
+            return copy;
+        }
+
+        /**
+         * Get the durations recorded since a snapshot was taken, as a histogram of their own which is not
+         * registered.
+         * @param snapshot the snapshot
+         * @return         the durations recorded since
+         */
+        public Histogram since(Histogram snapshot) {
+            Histogram difference = new Histogram(getName(), super.help);
+            for (int i = 0; i < buckets.length; i++)
+                difference.buckets[i].add(buckets[i].sum() - snapshot.buckets[i].sum());
+            difference.sum.add(sum.sum() - snapshot.sum.sum());
+            return difference;
+        }
+
+        /**
+         * Get the number of durations recorded.
+         * @return the count
+         */
+        public long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets)
+                count += bucket.sum();
+            return count;
+        }
+
+        /**
+         * Get the total of the durations recorded.
+         * @return the total, in nanoseconds
+         */
+        public long getSumNanos() {
+            return sum.sum();
+        }
+
+        /**
+         * Get an upper bound of a quantile of the durations recorded: the upper bound of the bucket the
+         * quantile falls in.
+         * @param quantile the quantile, between 0 and 1
+         * @return         the upper bound, in nanoseconds, or Long.MAX_VALUE if it falls in the last bucket
+         */
+        public long getQuantileBoundNanos(double quantile) {
+            long rank = (long) Math.ceil(quantile * getCount());
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += buckets[i].sum();
+                if (cumulative >= rank)
+                    return BOUNDS[i];
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Summarise the durations recorded in a line: their count, mean, and median and 99th percentile
+         * bounds.
+         * @return the summary
+         */
+        public String summarize() {
+            long count = getCount();
+            if (count == 0)
+                return getName() + ": none recorded";
+            return String.format("%s: %d recorded, mean %.1f ms, p50 <= %s, p99 <= %s", getName(), count,
+                                 getSumNanos() / 1e6 / count, formatBound(getQuantileBoundNanos(0.5)),
+                                 formatBound(getQuantileBoundNanos(0.99)));
+        }
+
+        /**
+         * Format a bucket's upper bound in milliseconds.
+         * @param nanos the bound, in nanoseconds
+         * @return      the formatted bound
+         */
+        private static String formatBound(long nanos) {
+            return (nanos == Long.MAX_VALUE) ? "+Inf" : (nanos / 1e6) + " ms";
+        }
+
+        @Override
+        protected void render(StringBuilder out) {
+            header(out, "histogram");
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(getName()).append("_bucket{le=\"")
+                   .append(i < BOUNDS.length ? Double.toString(BOUNDS[i] / NANOS_PER_SECOND) : "+Inf")
+                   .append("\"} ").append(cumulative).append('\n');
+            }
+            out.append(getName()).append("_sum ").append(getSumNanos() / NANOS_PER_SECOND).append('\n');
+            out.append(getName()).append("_count ").append(cumulative).append('\n');
+        }
+    }
+
+
+    /**
+     * Register a new counter.
+     * @param name the counter's name
+     * @param help the counter's description
+     * @return     the counter
+     */
+    public static Counter counter(String name, String help) {
+        return register(new Counter(name, help));
+    }
+
+    /**
+     * Register a new gauge.
+     * @param name  the gauge's name
+     * @param help  the gauge's description
+     * @param value the gauge's value, read whenever the metrics are rendered
+     * @return      the gauge
+     */
+    public static Gauge gauge(String name, String help, LongSupplier value) {
+        return register(new Gauge(name, help, value));
+    }
+
+    /**
+     * Register a new histogram.
+     * @param name the histogram's name
+     * @param help the histogram's description
+     * @return     the histogram
+     */
+    public static Histogram histogram(String name, String help) {
+        return register(new Histogram(name, help));
+    }
+
+    /**
+     * Register a metric, unless one of the same name already is.
+     * @param metric the metric
+     * @return       the metric
+     * @param <T>    the metric's type
+     */
+    private static <T extends Metric> T register(T metric) {
+        synchronized (METRICS) {
+            for (Metric registered : METRICS)
+                if (registered.getName().equals(metric.getName()))
+                    throw new IllegalArgumentException("Duplicate metric name " + metric.getName());
+            METRICS.add(metric);
+        }
+        return metric;
+    }
+
+    /**
+     * Get every metric registered.
+     * @return a copy of the list of metrics
+     */
+    private static ArrayList<Metric> all() {
+        synchronized (METRICS) {
+            return new ArrayList<>(METRICS);
+        }
+    }
+
+
+    /**
+     * Render every metric in the Prometheus text format.
+     * @return the rendered text
+     */
+    public static String render() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : all())
+            metric.render(out);
+        return out.toString();
+    }
+
+    /**
+     * Register the metrics' MBean with the platform MBean server, unless already registered. Every counter
+     * and gauge is an attribute of its own name, and every histogram has a count and a sum attribute.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (! server.isRegistered(name))
+                server.registerMBean(new MetricsBean(), name);
+        } catch (JMException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * The metrics' MBean, exposing the current value of every metric as a read-only attribute.
+     */
+    private static final class MetricsBean implements DynamicMBean {
+        // suffixes of a histogram's attributes
+        private static final String COUNT = "_count";
+        private static final String SUM = "_sum_nanos";
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Metric metric : all()) {
+                if (metric instanceof Counter counter && counter.getName().equals(attribute))
+                    return counter.get();
+                if (metric instanceof Gauge gauge && gauge.getName().equals(attribute))
+                    return gauge.get();
+                if (metric instanceof Histogram histogram) {
+                    if ((histogram.getName() + COUNT).equals(attribute))
+                        return histogram.getCount();
+                    if ((histogram.getName() + SUM).equals(attribute))
+                        return histogram.getSumNanos();
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException ignored) {
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Metric metric : all()) {
+                if (metric instanceof Histogram) {
+                    attributes.add(attribute(metric.getName() + COUNT, metric.help));
+                    attributes.add(attribute(metric.getName() + SUM, metric.help));
+                }
+                else attributes.add(attribute(metric.getName(), metric.help));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Game metrics",
+                                 attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        /**
+         * Describe a read-only attribute of type long.
+         * @param name        the attribute's name
+         * @param description the attribute's description
+         * @return            the attribute's description
+         */
+        private static MBeanAttributeInfo attribute(String name, String description) {
+            return new MBeanAttributeInfo(name, "long", description, true, false, false);
+        }
+    }
+}
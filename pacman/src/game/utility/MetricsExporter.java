@@ -0,0 +1,95 @@
+package game.utility;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+
+/**
+ * MetricsExporter class serving the game's metrics over HTTP, in the Prometheus text format, so that game
+ * hosts can be scraped like any other service. The endpoint only listens on the loopback address, and
+ * starting it also registers the metrics' MBean for JMX clients.
+ * @see Metrics
+ */
+public class MetricsExporter implements AutoCloseable {
+    // path and content type of the endpoint
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int OK = 200;
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    private final HttpServer server;
+
+
+    /**
+     * Metrics exporter constructor; the endpoint starts serving right away.
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsExporter(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+        Metrics.registerMBean();
+    }
+
+    /**
+     * Start an exporter if the properties ask for one, on the port given by <code> metrics.port </code>.
+     * @param properties the game's properties
+     * @return           the exporter, or null if none was asked for or it could not be started
+     */
+    public static MetricsExporter start(Properties properties) {
+        String port = properties.getProperty(PropertiesLoader.METRICS_PORT);
+        if (port == null || port.isBlank())
+            return null;
+        try {
+            return new MetricsExporter(Integer.parseInt(port.strip()));
+        } catch (IOException | NumberFormatException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+
+    /**
+     * Serve a request of the endpoint.
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be written
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (! exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+            byte[] body = Metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(OK, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Get the port the endpoint listens on.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop serving.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
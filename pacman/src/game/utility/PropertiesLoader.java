@@ -12,9 +12,18 @@ public class PropertiesLoader {
     public static final String PROPERTIES_PATH = "properties/";
     // properties entry extension (for representing an object's location in properties file)
     public static final String AUTO_EXTENSION = ".isAuto";
+    public static final String AUTOPILOT_EXTENSION = ".autopilot";
+    public static final String MONTE_CARLO = "mcts";
     public static final String SEED = "seed";
     public static final String VERSION = "version";
     public static final String IS_MULTIVERSE = "multiverse";
+    public static final String METRICS_PORT = "metrics.port";
+    public static final String REPLAY_DIRECTORY = "replay.directory";
+    public static final String REPLAY_INTERVAL = "replay.interval";
+    public static final String CHECKPOINT_FILE = "checkpoint.file";
+    public static final String SIMULATION_SPEED = "simulation.speed";
+    public static final String SIMULATION_FRAME_TICKS = "simulation.frameTicks";
+    public static final String UNCAPPED = "max";
 
 
     public static Properties loadPropertiesFile(String propertiesFile) {
@@ -0,0 +1,172 @@
+package game.utility;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * SpriteCache class, the single place every image of the game and the editor is loaded from: the actors'
+ * sprites, the portals' sprites, and the editor's tiles. Each image file is decoded once, the first time it
+ * is asked for, and is then shared by everything that displays it.
+ * <p>
+ * Decoded images are packed into an atlas, a few large pages of the display's compatible translucent format,
+ * so they need no conversion when drawn and can be kept in video memory by the display. Each sprite is a
+ * region of a page, drawn straight from it, or viewed as an image of its own sharing the page's pixels for
+ * whatever needs an image, such as the actors of the game grid.
+ */
+public final class SpriteCache {
+    // size of an atlas page, in pixels; larger images get a page of their own
+    private static final int PAGE_SIZE = 512;
+
+    // the sprites loaded so far, by path
+    private static final ConcurrentHashMap<String, Sprite> SPRITES = new ConcurrentHashMap<>();
+
+    // the atlas pages, and the shelf the next sprite is packed onto in the last page
+    private static final ArrayList<BufferedImage> PAGES = new ArrayList<>();
+    private static int shelfX = 0;
+    private static int shelfY = 0;
+    private static int shelfHeight = 0;
+
+    /**
+     * A sprite, a region of an atlas page.
+     * @param page   the page
+     * @param x      the region's left, in pixels
+     * @param y      the region's top, in pixels
+     * @param width  the sprite's width, in pixels
+     * @param height the sprite's height, in pixels
+     * @param image  the region as an image of its own, sharing the page's pixels
+     */
+    public record Sprite(BufferedImage page, int x, int y, int width, int height, BufferedImage image) {
+        /**
+         * Draw the sprite straight from its page.
+         * @param g the graphics to draw to
+         * @param x the sprite's left on the graphics
+         * @param y the sprite's top on the graphics
+         */
+        public void draw(Graphics g, int x, int y) {
+            g.drawImage(page, x, y, x + width, y + height,
+                        this.x, this.y, this.x + width, this.y + height, null);
+        }
+
+        /**
+         * Draw the sprite straight from its page, centered on a point.
+         * @param g      the graphics to draw to
+         * @param center the point
+         */
+        public void drawCentered(Graphics g, Point center) {
+            draw(g, center.x - width / 2, center.y - height / 2);
+        }
+    }
+
+
+    /**
+     * Private constructor; the cache is only used through its static methods.
+     */
+    private SpriteCache() {}
+
+    /**
+     * Get the sprite of an image file, decoding and packing it into the atlas the first time.
+     * @param path the image file's path
+     * @return     the sprite
+     * @throws UncheckedIOException if the file cannot be read, or is not an image
+     */
+    public static Sprite get(String path) {
+        return SPRITES.computeIfAbsent(path, SpriteCache::load);
+    }
+
+    /**
+     * Get the images of an actor's sprites, named as the game grid names them: the path itself for a single
+     * sprite, or the path with <code> _0 </code>, <code> _1 </code>, and so on before its extension.
+     * @param path       the sprites' path
+     * @param numSprites the number of sprites
+     * @return           the images, sharing the atlas' pixels
+     * @throws UncheckedIOException if a file cannot be read, or is not an image
+     */
+    public static BufferedImage[] getImages(String path, int numSprites) {
+        BufferedImage[] images = new BufferedImage[numSprites];
+        if (numSprites == 1)
+            images[0] = get(path).image();
+        else {
+            int dot = path.lastIndexOf('.');
+            for (int i = 0; i < numSprites; i++)
+                images[i] = get(path.substring(0, dot) + "_" + i + path.substring(dot)).image();
+        }
+        return images;
+    }
+
+    /**
+     * Decode an image file and pack it into the atlas.
+     * @param path the image file's path
+     * @return     the sprite
+     */
+    private static Sprite load(String path) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new File(path));
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Bad sprite path: " + path, exception);
+        }
+        if (image == null)
+            throw new UncheckedIOException(new IOException("Not an image: " + path));
+        return pack(image);
+    }
+
+    /**
+     * Pack an image into the atlas, onto the current shelf of the last page if it fits there, on a new
+     * shelf below it otherwise, or on a new page.
+     * @param image the image
+     * @return      the sprite
+     */
+    private static synchronized Sprite pack(BufferedImage image) {
+        int width  = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage page;
+        int x = 0;
+        int y = 0;
+        if (width > PAGE_SIZE || height > PAGE_SIZE)
+            page = createImage(width, height);
+        else {
+            if (shelfX + width > PAGE_SIZE) {
+                shelfY += shelfHeight;
+                shelfX = 0;
+                shelfHeight = 0;
+            }
+            if (PAGES.isEmpty() || shelfY + height > PAGE_SIZE) {
+                PAGES.add(createImage(PAGE_SIZE, PAGE_SIZE));
+                shelfX = 0;
+                shelfY = 0;
+                shelfHeight = 0;
+            }
+            page = PAGES.get(PAGES.size() - 1);
+            x = shelfX;
+            y = shelfY;
+            shelfX += width;
+            shelfHeight = Math.max(shelfHeight, height);
+        }
+        Graphics2D graphics = page.createGraphics();
+        graphics.drawImage(image, x, y, null);
+        graphics.dispose();
+        return new Sprite(page, x, y, width, height, page.getSubimage(x, y, width, height));
+    }
+
+    /**
+     * Create an empty translucent image in the display's compatible format, or in a premultiplied format
+     * when there is no display.
+     * @param width  the image's width
+     * @param height the image's height
+     * @return       the image
+     */
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless())
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                                  .getDefaultConfiguration()
+                                  .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
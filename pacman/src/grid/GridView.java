@@ -135,7 +135,7 @@ public class GridView extends JPanel implements PropertyChangeListener {
 
 		@Override
 		public void paintComponent(Graphics g) {
-			g.drawImage(tile.getImage(), 0, 0, null);
+			tile.draw(g, 0, 0);
 		}
 	}
 }